@@ -0,0 +1,82 @@
+package com.vending.backtest;
+
+/**
+ * 新舊計價模型的彙總比較。各工作執行緒各自累加，最後再合併。
+ */
+public class BacktestReport {
+  long rows;
+  long changedRows;
+  long listRevenue;
+  long baselineRevenue;
+  long candidateRevenue;
+  long baselineSoldList;
+  long candidateSoldList;
+  long baselineChange;
+  long candidateChange;
+  long baselineUnaffordable;
+  long candidateUnaffordable;
+
+  void add(int listPrice, int balance, int baselinePrice, int candidatePrice) {
+    rows++;
+    listRevenue += listPrice;
+    if (baselinePrice != candidatePrice) changedRows++;
+    if (balance >= baselinePrice) {
+      baselineRevenue += baselinePrice;
+      baselineSoldList += listPrice;
+      baselineChange += balance - baselinePrice;
+    } else {
+      baselineUnaffordable++;
+    }
+    if (balance >= candidatePrice) {
+      candidateRevenue += candidatePrice;
+      candidateSoldList += listPrice;
+      candidateChange += balance - candidatePrice;
+    } else {
+      candidateUnaffordable++;
+    }
+  }
+
+  BacktestReport merge(BacktestReport other) {
+    rows += other.rows;
+    changedRows += other.changedRows;
+    listRevenue += other.listRevenue;
+    baselineRevenue += other.baselineRevenue;
+    candidateRevenue += other.candidateRevenue;
+    baselineSoldList += other.baselineSoldList;
+    candidateSoldList += other.candidateSoldList;
+    baselineChange += other.baselineChange;
+    candidateChange += other.candidateChange;
+    baselineUnaffordable += other.baselineUnaffordable;
+    candidateUnaffordable += other.candidateUnaffordable;
+    return this;
+  }
+
+  public long getRows() { return rows; }
+  public long getChangedRows() { return changedRows; }
+  public long getListRevenue() { return listRevenue; }
+  public long getBaselineRevenue() { return baselineRevenue; }
+  public long getCandidateRevenue() { return candidateRevenue; }
+  public long getBaselineChange() { return baselineChange; }
+  public long getCandidateChange() { return candidateChange; }
+  public long getBaselineUnaffordable() { return baselineUnaffordable; }
+  public long getCandidateUnaffordable() { return candidateUnaffordable; }
+
+  public long getRevenueDiff() { return candidateRevenue - baselineRevenue; }
+  public long getChangePayoutDiff() { return candidateChange - baselineChange; }
+
+  /** 平均折扣深度 (相對定價的折讓比例)，只計成交的交易。 */
+  public double getBaselineDiscountDepth() { return discountDepth(baselineRevenue, baselineSoldList); }
+  public double getCandidateDiscountDepth() { return discountDepth(candidateRevenue, candidateSoldList); }
+
+  private static double discountDepth(long revenue, long soldList) {
+    return soldList == 0 ? 0 : 1.0 - (double) revenue / soldList;
+  }
+
+  @Override
+  public String toString() {
+    return "BacktestReport{rows=" + rows + ", changedRows=" + changedRows
+        + ", revenue " + baselineRevenue + " -> " + candidateRevenue
+        + ", change " + baselineChange + " -> " + candidateChange
+        + ", unaffordable " + baselineUnaffordable + " -> " + candidateUnaffordable + "}";
+  }
+}
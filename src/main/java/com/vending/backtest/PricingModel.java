@@ -0,0 +1,22 @@
+package com.vending.backtest;
+
+import com.vending.model.Drink;
+import com.vending.service.DiscountEngine;
+import com.vending.service.DiscountService;
+
+/**
+ * 回測用的計價模型：給定一筆歷史交易的輸入，回傳應收總額。
+ */
+@FunctionalInterface
+public interface PricingModel {
+  int price(Drink drink, int balance, boolean vip, int quantity);
+
+  /** 以 DiscountEngine 計算單價再乘上數量。 */
+  static PricingModel of(DiscountEngine engine) {
+    return (drink, balance, vip, quantity) -> engine.applyPromotion(drink, balance, vip) * quantity;
+  }
+
+  static PricingModel of(DiscountService service) {
+    return (drink, balance, vip, quantity) -> service.getDiscountedPrice(drink, quantity);
+  }
+}
@@ -0,0 +1,176 @@
+package com.vending.backtest;
+
+import com.vending.model.Drink;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 以歷史交易回放比較兩套計價模型。
+ *
+ * 檔案每行一筆：drinkId,name,price,stock,hot,balance,vip,quantity，# 開頭為註解。
+ * 檔案依換行切成固定大小的區段，各區段以 memory-mapped 方式讀取並在 ForkJoinPool 中平行計算，
+ * 最後合併各區段的彙總，不需把整份歷史載入記憶體。
+ */
+public class PromotionBacktester {
+  private static final long DEFAULT_CHUNK_BYTES = 64L * 1024 * 1024;
+  private static final int FIELDS = 8;
+
+  private final PricingModel baseline;
+  private final PricingModel candidate;
+  private final ForkJoinPool pool;
+  private final long chunkBytes;
+
+  public PromotionBacktester(PricingModel baseline, PricingModel candidate) {
+    this(baseline, candidate, ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+  }
+
+  public PromotionBacktester(PricingModel baseline, PricingModel candidate, ForkJoinPool pool, long chunkBytes) {
+    if (chunkBytes <= 0 || chunkBytes > Integer.MAX_VALUE) throw new IllegalArgumentException("chunkBytes 超出範圍");
+    this.baseline = baseline;
+    this.candidate = candidate;
+    this.pool = pool;
+    this.chunkBytes = chunkBytes;
+  }
+
+  public BacktestReport run(Path history) throws IOException {
+    try (FileChannel channel = FileChannel.open(history, StandardOpenOption.READ)) {
+      List<long[]> chunks = split(channel);
+      if (chunks.isEmpty()) return new BacktestReport();
+      try {
+        return pool.invoke(new ChunkTask(this, channel, chunks, 0, chunks.size()));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  /** 依 chunkBytes 切段，每段結尾對齊到換行之後。 */
+  private List<long[]> split(FileChannel channel) throws IOException {
+    long size = channel.size();
+    List<long[]> chunks = new ArrayList<>();
+    ByteBuffer one = ByteBuffer.allocate(1);
+    long start = 0;
+    while (start < size) {
+      long end = Math.min(size, start + chunkBytes);
+      while (end < size) {
+        one.clear();
+        channel.read(one, end - 1);
+        if (one.get(0) == '\n') break;
+        end++;
+      }
+      chunks.add(new long[]{start, end});
+      start = end;
+    }
+    return chunks;
+  }
+
+  // 只在同一個 ForkJoinPool 內傳遞，不會被序列化
+  private static final class ChunkTask extends RecursiveTask<BacktestReport> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient PromotionBacktester backtester;
+    private final transient FileChannel channel;
+    private final transient List<long[]> chunks;
+    private final int from;
+    private final int to;
+
+    ChunkTask(PromotionBacktester backtester, FileChannel channel, List<long[]> chunks, int from, int to) {
+      this.backtester = backtester;
+      this.channel = channel;
+      this.chunks = chunks;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected BacktestReport compute() {
+      if (to - from == 1) {
+        long[] c = chunks.get(from);
+        try {
+          return backtester.process(channel.map(FileChannel.MapMode.READ_ONLY, c[0], c[1] - c[0]));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      int mid = (from + to) >>> 1;
+      ChunkTask left = new ChunkTask(backtester, channel, chunks, from, mid);
+      left.fork();
+      BacktestReport right = new ChunkTask(backtester, channel, chunks, mid, to).compute();
+      return left.join().merge(right);
+    }
+  }
+
+  BacktestReport process(MappedByteBuffer buf) {
+    BacktestReport report = new BacktestReport();
+    int[] starts = new int[FIELDS];
+    int[] ends = new int[FIELDS];
+    int limit = buf.limit();
+    int pos = 0;
+    int lineNo = 0;
+    while (pos < limit) {
+      int lineStart = pos;
+      int field = 0;
+      starts[0] = pos;
+      while (pos < limit && buf.get(pos) != '\n') {
+        if (buf.get(pos) == ',' && field < FIELDS - 1) {
+          ends[field] = pos;
+          starts[++field] = pos + 1;
+        }
+        pos++;
+      }
+      int lineEnd = pos > lineStart && buf.get(pos - 1) == '\r' ? pos - 1 : pos;
+      ends[field] = lineEnd;
+      pos++;
+      lineNo++;
+      if (lineEnd == lineStart || buf.get(lineStart) == '#') continue;
+      if (field != FIELDS - 1) throw new IllegalArgumentException("欄位數錯誤，區段內第 " + lineNo + " 行");
+
+      String name = text(buf, starts[1], ends[1]);
+      int price = number(buf, starts[2], ends[2]);
+      int stock = number(buf, starts[3], ends[3]);
+      boolean hot = flag(buf, starts[4], ends[4]);
+      int balance = number(buf, starts[5], ends[5]);
+      boolean vip = flag(buf, starts[6], ends[6]);
+      int quantity = number(buf, starts[7], ends[7]);
+      Drink drink = new Drink(text(buf, starts[0], ends[0]), name.isEmpty() ? null : name, price, stock, hot);
+
+      report.add(price * quantity, balance,
+          baseline.price(drink, balance, vip, quantity), candidate.price(drink, balance, vip, quantity));
+    }
+    return report;
+  }
+
+  private static String text(ByteBuffer buf, int start, int end) {
+    byte[] bytes = new byte[end - start];
+    buf.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int number(ByteBuffer buf, int start, int end) {
+    boolean negative = start < end && buf.get(start) == '-';
+    int i = negative ? start + 1 : start;
+    if (i >= end) throw new IllegalArgumentException("缺少數值");
+    int value = 0;
+    for (; i < end; i++) {
+      int digit = buf.get(i) - '0';
+      if (digit < 0 || digit > 9) throw new IllegalArgumentException("數值格式錯誤: " + text(buf, start, end));
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  private static boolean flag(ByteBuffer buf, int start, int end) {
+    byte b = start < end ? buf.get(start) : (byte) '0';
+    return b == '1' || b == 't' || b == 'T';
+  }
+}
@@ -0,0 +1,8 @@
+package com.vending.core;
+
+import com.vending.model.Drink;
+
+/** 出貨馬達：把一件商品送到取物口，完成才返回，失敗時丟出例外。 */
+public interface DispenseMotor {
+  void deliver(Drink drink) throws Exception;
+}
@@ -0,0 +1,159 @@
+package com.vending.core;
+
+import com.vending.model.Drink;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 管線化出貨：收款與保留庫存在選購當下完成，馬達出貨交給背景工作執行緒依序處理。
+ *
+ * 佇列有上限，滿了就請顧客稍候，不會無限制累積；每件出貨完成後回呼機台，
+ * 由機台吐出找零並記帳，出貨失敗則退款並歸還保留的庫存。
+ * 每件的出貨結果與吐出的硬幣經由 {@link Listener} 個別回報，不會覆蓋機台上其他顧客的找零。
+ * 由 {@link VendingMachine#enablePipelinedDispense} 建立。
+ */
+public class DispensePipeline {
+
+  /**
+   * 出貨結果回報，在工作執行緒上呼叫；coinsOut 為找零，出貨失敗時為找零加上退還的價款。
+   * 出貨失敗而零錢不足以退還價款時，owed 為機台欠顧客、需人工退還的金額，其餘情況為 0。
+   */
+  public interface Listener {
+    void onDispensed(String machineId, String drinkId, boolean delivered, Map<Integer, Integer> coinsOut, int owed);
+  }
+
+  /** 一件出貨完成後實際吐出的硬幣與未能退還的金額。 */
+  static final class Outcome {
+    final Map<Integer, Integer> coinsOut;
+    final int owed;
+
+    Outcome(Map<Integer, Integer> coinsOut, int owed) {
+      this.coinsOut = coinsOut;
+      this.owed = owed;
+    }
+  }
+
+  /** 一件已收款、等待出貨的商品。 */
+  static final class Job {
+    final Drink drink;
+    final int price;
+    final int paid;
+    final int stockAfter;
+    final Map<Integer, Integer> payout;
+
+    Job(Drink drink, int price, int paid, int stockAfter, Map<Integer, Integer> payout) {
+      this.drink = drink;
+      this.price = price;
+      this.paid = paid;
+      this.stockAfter = stockAfter;
+      this.payout = payout;
+    }
+  }
+
+  private final VendingMachine machine;
+  private final DispenseMotor motor;
+  private final Listener listener;
+  private final int capacity;
+  // 佇列中加上馬達上正在出貨的件數不超過 capacity
+  private final Semaphore slots;
+  private final BlockingQueue<Job> queue = new LinkedBlockingQueue<>();
+  private final Thread worker;
+  private final Object idle = new Object();
+  private volatile boolean closed;
+
+  DispensePipeline(VendingMachine machine, DispenseMotor motor, int capacity, Listener listener) {
+    if (capacity <= 0) throw new IllegalArgumentException("capacity 必須大於 0");
+    this.machine = machine;
+    this.motor = motor;
+    this.listener = listener;
+    this.capacity = capacity;
+    this.slots = new Semaphore(capacity);
+    this.worker = Thread.ofVirtual().name("dispense-" + machine.getMachineId()).start(this::runWorker);
+  }
+
+  /** 預留一個出貨名額；佇列已滿或已關閉時回傳 false。 */
+  boolean tryReserve() {
+    return !closed && slots.tryAcquire();
+  }
+
+  /** 歸還未使用的名額。 */
+  void release() {
+    slots.release();
+    synchronized (idle) {
+      idle.notifyAll();
+    }
+  }
+
+  /** 送出已預留名額的出貨工作。 */
+  void submit(Job job) {
+    queue.add(job);
+  }
+
+  private void runWorker() {
+    while (true) {
+      Job job;
+      try {
+        job = queue.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+      Exception failure = null;
+      try {
+        motor.deliver(job.drink);
+      } catch (Exception e) {
+        failure = e;
+      }
+      try {
+        Outcome outcome = machine.onDispenseComplete(job, failure);
+        listener.onDispensed(machine.getMachineId(), job.drink.getId(), failure == null, outcome.coinsOut, outcome.owed);
+      } catch (RuntimeException e) {
+        System.out.println("【出貨】完成回呼失敗: " + e);
+      } finally {
+        release();
+      }
+    }
+  }
+
+  /** 等待所有出貨完成；逾時回傳 false。 */
+  public boolean awaitIdle(Duration timeout) throws InterruptedException {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    synchronized (idle) {
+      while (pending() > 0) {
+        long left = deadline - System.nanoTime();
+        if (left <= 0) return false;
+        idle.wait(Math.max(1, left / 1_000_000));
+      }
+    }
+    return true;
+  }
+
+  /** 已收款但尚未出貨完成的件數。 */
+  public int pending() { return capacity - slots.availablePermits(); }
+  public int getCapacity() { return capacity; }
+
+  /**
+   * 停止接受新的出貨，等佇列清空後結束工作執行緒。
+   * 在 {@link Listener} 中 (工作執行緒本身) 呼叫時不能等自己，改由另一個執行緒等候並結束，立即返回。
+   */
+  public void shutdown() throws InterruptedException {
+    closed = true;
+    if (Thread.currentThread() == worker) {
+      Thread.ofVirtual().name("dispense-shutdown-" + machine.getMachineId()).start(() -> {
+        try {
+          shutdown();
+        } catch (InterruptedException e) {
+          worker.interrupt();
+        }
+      });
+      return;
+    }
+    synchronized (idle) {
+      while (pending() > 0) idle.wait();
+    }
+    worker.interrupt();
+    worker.join();
+  }
+}
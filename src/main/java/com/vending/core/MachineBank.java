@@ -0,0 +1,70 @@
+package com.vending.core;
+
+import com.vending.model.Drink;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 同一站點並排的一組機台 (最多 64 台) 共用的庫存索引。
+ *
+ * 每種飲料對應一個 64 位元遮罩，第 i 位代表第 i 台機台仍有庫存。
+ * 更新以 CAS 設定或清除單一位元，查詢以位元運算找出左右最近的機台，全程無鎖且為 O(1)。
+ * 機台的位置依加入順序排列，代表實際擺放的先後。
+ */
+public class MachineBank {
+  public static final int MAX_MACHINES = 64;
+
+  private final AtomicReferenceArray<VendingMachine> members = new AtomicReferenceArray<>(MAX_MACHINES);
+  private final AtomicInteger size = new AtomicInteger();
+  private final ConcurrentHashMap<String, AtomicLong> stockMasks = new ConcurrentHashMap<>();
+
+  /** 將機台加入這一排，並以目前庫存建立索引。 */
+  public int join(VendingMachine machine) {
+    int position = size.getAndIncrement();
+    if (position >= MAX_MACHINES) {
+      size.decrementAndGet();
+      throw new IllegalStateException("一排最多 " + MAX_MACHINES + " 台機台");
+    }
+    members.set(position, machine);
+    machine.joinBank(this, position);
+    for (Drink d : machine.getInventory().values()) onStockChanged(machine, d);
+    return position;
+  }
+
+  public void onStockChanged(VendingMachine machine, Drink drink) {
+    int position = machine.getBankPosition();
+    if (position < 0 || members.get(position) != machine) return;
+    long bit = 1L << position;
+    AtomicLong mask = stockMasks.computeIfAbsent(drink.getId(), k -> new AtomicLong());
+    if (drink.getStock() > 0) mask.getAndUpdate(m -> m | bit);
+    else mask.getAndUpdate(m -> m & ~bit);
+  }
+
+  /** 離 from 最近、且 drinkId 仍有庫存的其他機台；找不到時回傳 null。 */
+  public VendingMachine nearestWithStock(VendingMachine from, String drinkId) {
+    AtomicLong mask = stockMasks.get(drinkId);
+    if (mask == null) return null;
+    int position = from.getBankPosition();
+    long m = mask.get() & ~(1L << position);
+    if (m == 0) return null;
+
+    long below = m & ((1L << position) - 1);
+    long above = position == MAX_MACHINES - 1 ? 0 : m & (-1L << (position + 1));
+    int left = below == 0 ? -1 : 63 - Long.numberOfLeadingZeros(below);
+    int right = above == 0 ? -1 : Long.numberOfTrailingZeros(above);
+    int nearest;
+    if (left < 0) nearest = right;
+    else if (right < 0) nearest = left;
+    else nearest = (position - left) <= (right - position) ? left : right;
+    return members.get(nearest);
+  }
+
+  public boolean anyHasStock(String drinkId) {
+    AtomicLong mask = stockMasks.get(drinkId);
+    return mask != null && mask.get() != 0;
+  }
+
+  public int size() { return size.get(); }
+}
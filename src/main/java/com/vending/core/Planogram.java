@@ -0,0 +1,75 @@
+package com.vending.core;
+
+import com.vending.model.Drink;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已通過驗證的一批貨道資料，由 {@link PlanogramLoader} 產生。
+ *
+ * FULL 為完整貨道配置，套用時整張替換機台的品項；RESTOCK 只更新既有貨道的庫存。
+ * 同一批資料可套用到整個機隊，每台機台各自得到一份新的 Drink 物件。
+ */
+public final class Planogram {
+  public enum Kind { FULL, RESTOCK }
+
+  private final Kind kind;
+  private final String[] ids;
+  private final String[] names;
+  private final int[] prices;
+  private final int[] stocks;
+  private final boolean[] hot;
+
+  Planogram(Kind kind, String[] ids, String[] names, int[] prices, int[] stocks, boolean[] hot) {
+    this.kind = kind;
+    this.ids = ids;
+    this.names = names;
+    this.prices = prices;
+    this.stocks = stocks;
+    this.hot = hot;
+  }
+
+  /**
+   * 整批套用到機台：先在副本上完成所有變更，再一次替換上線，顧客不會看到只更新一半的貨道。
+   * 副本在機台的鎖內建立，與顧客交易互斥，建立副本期間不會有銷售扣在舊的品項上而遺失。
+   * RESTOCK 中若有機台不存在的貨道，整批不套用並丟出 IllegalArgumentException。
+   */
+  public void applyTo(VendingMachine machine) {
+    machine.getLock().lock();
+    try {
+      Map<String, Drink> current = machine.getInventory();
+      Map<String, Drink> next = new HashMap<>(kind == Kind.FULL ? ids.length * 2 : current.size() * 2);
+      if (kind == Kind.FULL) {
+        for (int i = 0; i < ids.length; i++) next.put(ids[i], new Drink(ids[i], names[i], prices[i], stocks[i], hot[i]));
+      } else {
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+          if (!current.containsKey(id)) missing.add(id);
+        }
+        if (!missing.isEmpty()) {
+          throw new IllegalArgumentException(machine.getMachineId() + " 沒有這些貨道: " + missing);
+        }
+        for (Drink d : current.values()) {
+          next.put(d.getId(), new Drink(d.getId(), d.getName(), d.getPrice(), d.getStock(), d.isHot()));
+        }
+        for (int i = 0; i < ids.length; i++) next.get(ids[i]).setStock(stocks[i]);
+      }
+      machine.replaceInventory(next);
+    } finally {
+      machine.getLock().unlock();
+    }
+  }
+
+  public Kind getKind() { return kind; }
+  public int size() { return ids.length; }
+  public List<String> getSlotIds() { return Arrays.asList(ids.clone()); }
+
+  String id(int i) { return ids[i]; }
+  String name(int i) { return names[i]; }
+  int price(int i) { return prices[i]; }
+  int stock(int i) { return stocks[i]; }
+  boolean hot(int i) { return hot[i]; }
+}
@@ -0,0 +1,290 @@
+package com.vending.core;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 讀取倉儲下發的貨道配置 (planogram) 與補貨檔，支援 CSV 與二進位兩種格式。
+ *
+ * 檔案以記憶體映射 (mmap) 開啟後逐位元組掃描，數值欄位直接從位元組解析，不需先把整個檔案讀成字串。
+ * 全部資料驗證通過才回傳 {@link Planogram}，有任何錯誤就整批拒絕並列出前幾筆錯誤的行號。
+ *
+ * CSV 第一行為表頭：{@code id,name,price,stock,hot} 為完整配置，{@code id,stock} 為補貨；
+ * 空行與 # 開頭為註解。
+ * 二進位格式 (big-endian)：{@code "PLNG"}、版本 (1 byte)、種類 (0 完整 / 1 補貨)、筆數 (int)，
+ * 每筆為 id (u16 長度 + UTF-8)，完整配置再接 name (同上)、price (int)、stock (int)、hot (1 byte)，
+ * 補貨則只接 stock (int)。
+ */
+public final class PlanogramLoader {
+  public static final int MAX_STOCK = 99;
+  static final byte[] MAGIC = {'P', 'L', 'N', 'G'};
+  static final int VERSION = 1;
+  private static final String FULL_HEADER = "id,name,price,stock,hot";
+  private static final String RESTOCK_HEADER = "id,stock";
+  private static final int MAX_REPORTED_ERRORS = 20;
+
+  private PlanogramLoader() {}
+
+  /** 依檔頭自動判斷格式並載入。 */
+  public static Planogram load(Path file) throws IOException {
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = ch.size();
+      if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("檔案過大: " + size);
+      MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return isBinary(buf) ? parseBinary(buf) : parseCsv(buf);
+    }
+  }
+
+  private static boolean isBinary(ByteBuffer buf) {
+    if (buf.limit() < MAGIC.length) return false;
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (buf.get(i) != MAGIC[i]) return false;
+    }
+    return true;
+  }
+
+  // ---------------------------------------------------------------- CSV
+
+  static Planogram parseCsv(ByteBuffer buf) {
+    Builder b = null;
+    int pos = 0;
+    int limit = buf.limit();
+    int lineNo = 0;
+    int[] starts = new int[5];
+    int[] ends = new int[5];
+    while (pos < limit) {
+      lineNo++;
+      int end = pos;
+      while (end < limit && buf.get(end) != '\n') end++;
+      int next = end + 1;
+      if (end > pos && buf.get(end - 1) == '\r') end--;
+      if (lineNo == 1 && hasBom(buf, pos, end)) pos += 3;
+      int start = skipSpaces(buf, pos, end);
+      if (start == end || buf.get(start) == '#') {
+        pos = next;
+        continue;
+      }
+      if (b == null) {
+        String header = decode(buf, start, end).replace(" ", "");
+        if (header.equalsIgnoreCase(FULL_HEADER)) b = new Builder(Planogram.Kind.FULL);
+        else if (header.equalsIgnoreCase(RESTOCK_HEADER)) b = new Builder(Planogram.Kind.RESTOCK);
+        else throw new IllegalArgumentException("第 " + lineNo + " 行表頭應為 " + FULL_HEADER + " 或 " + RESTOCK_HEADER);
+        pos = next;
+        continue;
+      }
+      int fields = split(buf, start, end, starts, ends);
+      int expected = b.kind == Planogram.Kind.FULL ? 5 : 2;
+      String where = "第 " + lineNo + " 行";
+      if (fields != expected) {
+        b.error(where + "應有 " + expected + " 個欄位");
+      } else if (b.kind == Planogram.Kind.FULL) {
+        b.add(where, decode(buf, starts[0], ends[0]), decode(buf, starts[1], ends[1]),
+            parseInt(buf, starts[2], ends[2], b, where + " price"), parseInt(buf, starts[3], ends[3], b, where + " stock"),
+            parseBool(buf, starts[4], ends[4], b, where + " hot"));
+      } else {
+        b.add(where, decode(buf, starts[0], ends[0]), null, 0, parseInt(buf, starts[1], ends[1], b, where + " stock"), false);
+      }
+      pos = next;
+    }
+    if (b == null) throw new IllegalArgumentException("檔案沒有表頭");
+    return b.build();
+  }
+
+  private static boolean hasBom(ByteBuffer buf, int pos, int end) {
+    return end - pos >= 3 && (buf.get(pos) & 0xff) == 0xEF && (buf.get(pos + 1) & 0xff) == 0xBB && (buf.get(pos + 2) & 0xff) == 0xBF;
+  }
+
+  private static int split(ByteBuffer buf, int start, int end, int[] starts, int[] ends) {
+    int n = 0;
+    int fieldStart = start;
+    for (int i = start; i <= end; i++) {
+      if (i == end || buf.get(i) == ',') {
+        if (n < starts.length) {
+          int s = skipSpaces(buf, fieldStart, i);
+          int e = i;
+          while (e > s && buf.get(e - 1) == ' ') e--;
+          starts[n] = s;
+          ends[n] = e;
+        }
+        n++;
+        fieldStart = i + 1;
+      }
+    }
+    return n;
+  }
+
+  private static int skipSpaces(ByteBuffer buf, int pos, int end) {
+    while (pos < end && (buf.get(pos) == ' ' || buf.get(pos) == '\t')) pos++;
+    return pos;
+  }
+
+  private static String decode(ByteBuffer buf, int start, int end) {
+    byte[] bytes = new byte[end - start];
+    buf.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int parseInt(ByteBuffer buf, int start, int end, Builder b, String what) {
+    boolean negative = start < end && buf.get(start) == '-';
+    int i = negative ? start + 1 : start;
+    if (i == end || end - i > 9) {
+      b.error(what + " 不是合法整數");
+      return 0;
+    }
+    int value = 0;
+    for (; i < end; i++) {
+      int d = buf.get(i) - '0';
+      if (d < 0 || d > 9) {
+        b.error(what + " 不是合法整數");
+        return 0;
+      }
+      value = value * 10 + d;
+    }
+    return negative ? -value : value;
+  }
+
+  private static boolean parseBool(ByteBuffer buf, int start, int end, Builder b, String what) {
+    String s = decode(buf, start, end);
+    if (s.equalsIgnoreCase("true")) return true;
+    if (!s.equalsIgnoreCase("false")) b.error(what + " 應為 true 或 false");
+    return false;
+  }
+
+  // ---------------------------------------------------------------- 二進位
+
+  static Planogram parseBinary(ByteBuffer buf) {
+    try {
+      buf.position(MAGIC.length);
+      int version = buf.get() & 0xff;
+      if (version != VERSION) throw new IllegalArgumentException("不支援的版本: " + version);
+      int kindCode = buf.get() & 0xff;
+      if (kindCode > 1) throw new IllegalArgumentException("未知的資料種類: " + kindCode);
+      Builder b = new Builder(kindCode == 0 ? Planogram.Kind.FULL : Planogram.Kind.RESTOCK);
+      int count = buf.getInt();
+      if (count < 0) throw new IllegalArgumentException("筆數不合法: " + count);
+      for (int i = 0; i < count; i++) {
+        String where = "第 " + (i + 1) + " 筆";
+        String id = readString(buf);
+        if (b.kind == Planogram.Kind.FULL) {
+          String name = readString(buf);
+          int price = buf.getInt();
+          int stock = buf.getInt();
+          int hot = buf.get();
+          if (hot != 0 && hot != 1) b.error(where + " hot 應為 0 或 1");
+          b.add(where, id, name, price, stock, hot == 1);
+        } else {
+          b.add(where, id, null, 0, buf.getInt(), false);
+        }
+      }
+      if (buf.hasRemaining()) throw new IllegalArgumentException("檔尾有多餘的 " + buf.remaining() + " 位元組");
+      return b.build();
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("檔案不完整", e);
+    }
+  }
+
+  private static String readString(ByteBuffer buf) {
+    int len = buf.getShort() & 0xffff;
+    byte[] bytes = new byte[len];
+    buf.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** 輸出二進位格式，供倉儲端產生檔案或測試使用。 */
+  public static byte[] toBinary(Planogram p) {
+    List<byte[]> ids = new ArrayList<>(p.size());
+    List<byte[]> names = new ArrayList<>(p.size());
+    int size = MAGIC.length + 2 + 4;
+    boolean full = p.getKind() == Planogram.Kind.FULL;
+    for (int i = 0; i < p.size(); i++) {
+      byte[] id = p.id(i).getBytes(StandardCharsets.UTF_8);
+      ids.add(id);
+      size += 2 + id.length + 4;
+      if (full) {
+        byte[] name = p.name(i).getBytes(StandardCharsets.UTF_8);
+        names.add(name);
+        size += 2 + name.length + 4 + 1;
+      }
+    }
+    ByteBuffer out = ByteBuffer.allocate(size);
+    out.put(MAGIC).put((byte) VERSION).put((byte) (full ? 0 : 1)).putInt(p.size());
+    for (int i = 0; i < p.size(); i++) {
+      out.putShort((short) ids.get(i).length).put(ids.get(i));
+      if (full) {
+        out.putShort((short) names.get(i).length).put(names.get(i));
+        out.putInt(p.price(i)).putInt(p.stock(i)).put((byte) (p.hot(i) ? 1 : 0));
+      } else {
+        out.putInt(p.stock(i));
+      }
+    }
+    return out.array();
+  }
+
+  // ---------------------------------------------------------------- 驗證
+
+  private static final class Builder {
+    private final Planogram.Kind kind;
+    private final Set<String> seen = new HashSet<>();
+    private final List<String> errors = new ArrayList<>();
+    private int errorCount;
+    private int size;
+    private String[] ids = new String[64];
+    private String[] names = new String[64];
+    private int[] prices = new int[64];
+    private int[] stocks = new int[64];
+    private boolean[] hot = new boolean[64];
+
+    Builder(Planogram.Kind kind) { this.kind = kind; }
+
+    void error(String message) {
+      errorCount++;
+      if (errors.size() < MAX_REPORTED_ERRORS) errors.add(message);
+    }
+
+    void add(String where, String id, String name, int price, int stock, boolean isHot) {
+      if (id.isEmpty()) error(where + " id 不可為空");
+      else if (!seen.add(id)) error(where + " 貨道 " + id + " 重複");
+      if (stock < 0 || stock > MAX_STOCK) error(where + " stock 應介於 0 與 " + MAX_STOCK + " 之間");
+      if (kind == Planogram.Kind.FULL) {
+        if (name.isEmpty()) error(where + " name 不可為空");
+        if (price < 0) error(where + " price 不可為負數");
+      }
+      if (size == ids.length) {
+        int cap = size * 2;
+        ids = Arrays.copyOf(ids, cap);
+        names = Arrays.copyOf(names, cap);
+        prices = Arrays.copyOf(prices, cap);
+        stocks = Arrays.copyOf(stocks, cap);
+        hot = Arrays.copyOf(hot, cap);
+      }
+      ids[size] = id;
+      names[size] = name;
+      prices[size] = price;
+      stocks[size] = stock;
+      hot[size] = isHot;
+      size++;
+    }
+
+    Planogram build() {
+      if (kind == Planogram.Kind.FULL && size == 0 && errorCount == 0) error("完整配置至少需要一個貨道");
+      if (errorCount > 0) {
+        String more = errorCount > errors.size() ? "\n... 共 " + errorCount + " 個錯誤" : "";
+        throw new IllegalArgumentException("貨道資料驗證失敗:\n" + String.join("\n", errors) + more);
+      }
+      boolean full = kind == Planogram.Kind.FULL;
+      return new Planogram(kind, Arrays.copyOf(ids, size), full ? Arrays.copyOf(names, size) : null,
+          full ? Arrays.copyOf(prices, size) : null, Arrays.copyOf(stocks, size), full ? Arrays.copyOf(hot, size) : null);
+    }
+  }
+}
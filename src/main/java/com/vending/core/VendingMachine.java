@@ -1,39 +1,119 @@
 package com.vending.core;
 
+import com.vending.jfr.ChangeCalculatedEvent;
+import com.vending.jfr.CoinInsertedEvent;
+import com.vending.jfr.DrinkSelectedEvent;
+import com.vending.jfr.PromotionEvaluatedEvent;
+import com.vending.jfr.StateTransitionEvent;
 import com.vending.model.Drink;
 import com.vending.state.*;
 import com.vending.service.ChangeService;
 import com.vending.service.DiscountEngine;
+import com.vending.service.FraudDetector;
+import com.vending.service.MemberDirectory;
+import com.vending.service.StockForecaster;
+import com.vending.service.TimerWheel;
+import com.vending.telemetry.OfflineOutbox;
+import com.vending.telemetry.OutboxSink;
+import com.vending.telemetry.OutboxUploader;
+import com.vending.telemetry.SensorTimeSeriesStore;
+import com.vending.telemetry.TelemetryBatcher;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class VendingMachine {
+  private static final String DEFAULT_MACHINE_ID = "VM-0001";
+
+  // 共用模式下所有機台共用的無狀態物件，機台上下文由呼叫端帶入
+  private static final VendingMachineState SHARED_IDLE = new IdleState();
+  private static final VendingMachineState SHARED_HAS_MONEY = new HasMoneyState();
+  private static final VendingMachineState SHARED_SOLD = new SoldState();
+  private static final VendingMachineState SHARED_SOLD_OUT = new SoldOutState();
+
+  private final String machineId;
   private final VendingMachineState idleState;
   private final VendingMachineState hasMoneyState;
   private final VendingMachineState soldState;
   private final VendingMachineState soldOutState;
-  private final VendingMachineState maintenanceState;
+  // 共用模式下延遲建立：維護狀態持有本機的感測器歷史與檢測設定
+  private MaintenanceState maintenanceState;
+  private final boolean shared;
 
-  private final Map<String, Drink> inventory = new HashMap<>();
+  // 批次補貨以整張表替換 (copy-on-write)，讀取端拿到的永遠是完整的一版
+  private volatile Map<String, Drink> inventory = new HashMap<>();
   private final ChangeService changeService;
   private final DiscountEngine discountEngine;
 
   private VendingMachineState currentState;
   private int balance = 0;
   private Drink currentDrink;
+  private volatile Map<Integer, Integer> lastChange = Collections.emptyMap();
+  private TelemetryBatcher telemetry;
+  private OfflineOutbox outbox;
+  private OutboxUploader outboxUploader;
+  private FraudDetector fraudDetector;
+  private StockForecaster stockForecaster;
+  private MachineBank bank;
+  private int bankPosition = -1;
+  private VendingMachine redirectSuggestion;
+  private MemberDirectory memberDirectory;
+  private SensorTimeSeriesStore sensorStore;
+  private volatile DispensePipeline dispensePipeline;
+  // 本次交易刷的會員卡號，0 表示未刷卡
+  private long currentMemberId;
+
+  // 顧客操作、計時器、出貨回呼與批次補貨都在此鎖內變更機台狀態 (可重入，狀態物件回呼機台時不會卡住)
+  private final ReentrantLock lock = new ReentrantLock();
+  private TimerWheel timerWheel;
+  private long sessionTimeoutMillis;
+  private TimerWheel.Timeout sessionTimer;
+  private long sessionGeneration;
 
   public VendingMachine() {
-    this.idleState = new IdleState(this);
-    this.hasMoneyState = new HasMoneyState(this);
-    this.soldState = new SoldState(this);
-    this.soldOutState = new SoldOutState(this);
-    this.maintenanceState = new MaintenanceState(this);
-    this.changeService = new ChangeService();
-    this.discountEngine = new DiscountEngine();
+    this(DEFAULT_MACHINE_ID);
+  }
+
+  public VendingMachine(String machineId) {
+    this(machineId, null);
+  }
+
+  // sharedEngine 不為 null 時為共用模式
+  private VendingMachine(String machineId, DiscountEngine sharedEngine) {
+    this.machineId = machineId;
+    this.shared = sharedEngine != null;
+    if (shared) {
+      this.idleState = SHARED_IDLE;
+      this.hasMoneyState = SHARED_HAS_MONEY;
+      this.soldState = SHARED_SOLD;
+      this.soldOutState = SHARED_SOLD_OUT;
+      this.discountEngine = sharedEngine;
+    } else {
+      this.idleState = new IdleState();
+      this.hasMoneyState = new HasMoneyState();
+      this.soldState = new SoldState();
+      this.soldOutState = new SoldOutState();
+      this.maintenanceState = new MaintenanceState(this);
+      this.discountEngine = new DiscountEngine();
+    }
+    // 硬幣存量屬於單一機台，兩種模式都各自配置；共用模式不做 cache line 填充以縮小每台的記憶體
+    this.changeService = new ChangeService(!shared);
     this.currentState = idleState;
     initInventory();
     performSystemSelfCheck();
   }
 
+  /**
+   * 建立共用模式的機台：交易狀態為全域共用的無狀態物件，
+   * 只配置庫存、硬幣等真正屬於本機的資料，適合同時鏡像大量機台的主機。
+   * 促銷規則依機隊而定，由呼叫端傳入同一機隊共用的 fleetEngine。
+   */
+  public static VendingMachine createShared(String machineId, DiscountEngine fleetEngine) {
+    if (fleetEngine == null) throw new IllegalArgumentException("fleetEngine 不可為 null");
+    return new VendingMachine(machineId, fleetEngine);
+  }
+
   private void initInventory() {
     inventory.put("A1", new Drink("A1", "可樂", 25, 10, false));
     inventory.put("A2", new Drink("A2", "綠茶", 20, 5, false));
@@ -48,7 +128,7 @@ public class VendingMachine {
     if (hasMoneyState == null) errorCount++;
     if (soldState == null) errorCount++;
     if (soldOutState == null) errorCount++;
-    if (maintenanceState == null) errorCount++;
+    if (maintenanceState == null && !shared) errorCount++;
     if (changeService == null) errorCount++;
     if (discountEngine == null) errorCount++;
 
@@ -61,6 +141,7 @@ public class VendingMachine {
 
         if (d.getPrice() < 0) {
           d.setStock(0);
+          onStockChanged(d);
           errorCount += 5;
         } else if (d.getPrice() == 0) {
           System.out.println("警告: 0元商品");
@@ -68,6 +149,7 @@ public class VendingMachine {
 
         if (d.getStock() < 0) {
           d.setStock(0);
+          onStockChanged(d);
           errorCount++;
         }
       }
@@ -83,38 +165,432 @@ public class VendingMachine {
     return errorCount == 0;
   }
 
-  public void insertCoin(int amount) { if (amount > 0) currentState.insertCoin(amount); }
-  public void selectDrink(String id) { currentState.selectDrink(id); }
-  public void cancel() { currentState.cancel(); }
-  public void dispense() { currentState.dispense(); }
-  public void enterMaintenance(String pwd) { currentState.maintenance(pwd); }
+  public void insertCoin(int amount) {
+    if (amount <= 0) return;
+    lock.lock();
+    try {
+      int before = balance;
+      currentState.insertCoin(this, amount);
+      if (fraudDetector != null && balance > before) fraudDetector.onCoinInserted(machineId, balance - before);
+      CoinInsertedEvent.emit(machineId, amount, balance > before, balance, currentState.getClass().getSimpleName());
+      rearmSession();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void selectDrink(String id) {
+    lock.lock();
+    try {
+      DrinkSelectedEvent event = new DrinkSelectedEvent();
+      event.begin();
+      int before = balance;
+      currentState.selectDrink(this, id);
+      event.finish(machineId, id, before, balance, currentState);
+      rearmSession();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void cancel() {
+    lock.lock();
+    try {
+      int before = balance;
+      currentState.cancel(this);
+      if (fraudDetector != null && before > 0 && balance == 0) fraudDetector.onCancel(machineId, before);
+      if (balance == 0) {
+        currentMemberId = 0;
+        // 顧客已離開，上一位顧客的改道提示不再適用
+        redirectSuggestion = null;
+      }
+      rearmSession();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void dispense() {
+    lock.lock();
+    try {
+      currentState.dispense(this);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void enterMaintenance(String pwd) {
+    lock.lock();
+    try {
+      currentState.maintenance(this, pwd);
+    } finally {
+      lock.unlock();
+    }
+  }
 
   public void finalizeTransaction() {
-    if (currentDrink != null) {
-      int finalPrice = discountEngine.applyPromotion(currentDrink, balance, false);
-      if (balance >= finalPrice) {
-        balance -= finalPrice;
-        currentDrink.setStock(currentDrink.getStock() - 1);
-        changeService.calculateChange(balance);
-        balance = 0;
-        this.currentState = idleState;
+    lock.lock();
+    try {
+      if (currentDrink != null) settle(currentDrink);
+      currentDrink = null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void settle(Drink drink) {
+    int finalPrice = priceForCurrentMember(drink);
+    int change = balance - finalPrice;
+    if (change < 0) {
+      setState(hasMoneyState);
+      return;
+    }
+    DispensePipeline pipeline = dispensePipeline;
+    if (pipeline != null && !pipeline.tryReserve()) {
+      System.out.println("出貨中，請稍候再選");
+      setState(hasMoneyState);
+      return;
+    }
+    Map<Integer, Integer> payout = Collections.emptyMap();
+    if (change > 0) {
+      ChangeCalculatedEvent event = new ChangeCalculatedEvent();
+      event.begin();
+      payout = changeService.calculateChange(change);
+      event.finish(machineId, change, payout);
+    }
+    if (change > 0 && payout.isEmpty()) {
+      // 找零已整筆回滾，交易不成立，保留餘額讓顧客取消或改選
+      if (pipeline != null) pipeline.release();
+      System.out.println("零錢不足，請改投剛好金額或取消");
+      setState(hasMoneyState);
+      return;
+    }
+    int paid = balance;
+    drink.setStock(drink.getStock() - 1);
+    onStockChanged(drink);
+    if (pipeline != null) {
+      // 已收款並保留庫存，馬達在背景出貨，完成回呼才吐出找零並記帳；下一位顧客可立即投幣
+      pipeline.submit(new DispensePipeline.Job(drink, finalPrice, paid, drink.getStock(), payout));
+      lastChange = Collections.emptyMap();
+    } else {
+      lastChange = payout;
+      completeSale(drink, finalPrice, paid, drink.getStock(), payout);
+    }
+    balance = 0;
+    currentMemberId = 0;
+    redirectSuggestion = null;
+    setState(idleState);
+  }
+
+  private void completeSale(Drink drink, int finalPrice, int paid, int stockAfter, Map<Integer, Integer> payout) {
+    long now = System.currentTimeMillis();
+    if (telemetry != null) {
+      telemetry.recordSale(drink.getId(), finalPrice, paid, paid - finalPrice, now);
+      telemetry.recordCoinReserves(changeService, now);
+    }
+    if (fraudDetector != null) fraudDetector.onSale(machineId);
+    if (stockForecaster != null) stockForecaster.recordSale(machineId, drink.getId(), stockAfter, now);
+  }
+
+  /**
+   * 出貨管線的完成回呼，在工作執行緒上執行，自行取得機台的鎖。
+   * @return 這一件實際吐出的硬幣與欠顧客的金額，由管線回報給 {@link DispensePipeline.Listener}
+   */
+  DispensePipeline.Outcome onDispenseComplete(DispensePipeline.Job job, Exception failure) {
+    lock.lock();
+    try {
+      if (failure == null) {
+        completeSale(job.drink, job.price, job.paid, job.stockAfter, job.payout);
+        return new DispensePipeline.Outcome(job.payout, 0);
+      }
+      // 出貨失敗：歸還保留的庫存，找零連同商品價款一起退還
+      System.out.println("【出貨】" + job.drink.getName() + " 出貨失敗，退還 " + job.paid + " 元: " + failure.getMessage());
+      // 出貨期間庫存表可能已整批替換，依貨道編號找目前上線的品項
+      Drink current = inventory.get(job.drink.getId());
+      if (current != null) {
+        current.setStock(current.getStock() + 1);
+        onStockChanged(current);
       } else {
-        this.currentState = hasMoneyState;
+        System.out.println("【出貨】貨道 " + job.drink.getId() + " 已下架，不歸還庫存");
+      }
+      Map<Integer, Integer> refund = new HashMap<>(job.payout);
+      int owed = 0;
+      if (job.price > 0) {
+        Map<Integer, Integer> priceCoins = changeService.calculateChange(job.price);
+        // 零錢不足時整筆價款改由人工退還，交給 listener 回報欠款
+        if (priceCoins.isEmpty()) owed = job.price;
+        priceCoins.forEach((coin, count) -> refund.merge(coin, count, Integer::sum));
+      }
+      return new DispensePipeline.Outcome(refund, owed);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 啟用管線化出貨 (預設為同步出貨)：選購時即收款、保留庫存並回到待機，
+   * 由 motor 在背景依序出貨，最多 queueCapacity 件排隊；完成後才吐出找零並記帳。
+   * 每件吐出的硬幣交給 listener，{@link #getLastChange()} 只反映同步出貨的找零。
+   */
+  public void enablePipelinedDispense(DispenseMotor motor, int queueCapacity, DispensePipeline.Listener listener)
+      throws InterruptedException {
+    disablePipelinedDispense();
+    dispensePipeline = new DispensePipeline(this, motor, queueCapacity, listener);
+  }
+
+  /** 同上，出貨結果只印出訊息。 */
+  public void enablePipelinedDispense(DispenseMotor motor, int queueCapacity) throws InterruptedException {
+    enablePipelinedDispense(motor, queueCapacity, (id, drinkId, delivered, coinsOut, owed) ->
+        System.out.println("【出貨】" + id + " " + drinkId + (delivered ? " 出貨完成，找零 " : " 出貨失敗，退還 ") + coinsOut
+            + (owed > 0 ? "，零錢不足，請人工退還 " + owed + " 元" : "")));
+  }
+
+  /** 等候排隊中的商品出貨完畢後恢復同步出貨；在 listener 中呼叫時不等候，立即返回。 */
+  public void disablePipelinedDispense() throws InterruptedException {
+    DispensePipeline pipeline = dispensePipeline;
+    dispensePipeline = null;
+    if (pipeline != null) pipeline.shutdown();
+  }
+
+  /**
+   * 啟用閒置逾時：有餘額或已刷會員卡卻超過 timeoutMillis 沒有操作時自動退幣並清除會員。
+   * 計時器到期時在時間輪執行緒上執行，因此會先取得 {@link #getLock()}。
+   */
+  public void setSessionTimeout(TimerWheel wheel, long timeoutMillis) {
+    lock.lock();
+    try {
+      this.timerWheel = wheel;
+      this.sessionTimeoutMillis = timeoutMillis;
+      rearmSession();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** 以時間輪定期執行系統自檢。 */
+  public TimerWheel.Timeout scheduleSelfCheck(TimerWheel wheel, long periodMillis) {
+    return wheel.scheduleAtFixedRate(() -> {
+      lock.lock();
+      try {
+        if (!performSystemSelfCheck()) System.out.println("【稽核】" + machineId + " 自檢發現異常");
+      } finally {
+        lock.unlock();
+      }
+    }, periodMillis);
+  }
+
+  /** 以時間輪定期將目前的感測器讀值寫入維護狀態的時間序列。 */
+  public TimerWheel.Timeout scheduleSensorSampling(TimerWheel wheel, long periodMillis) {
+    return wheel.scheduleAtFixedRate(() -> {
+      lock.lock();
+      try {
+        getMaintenanceState().recordSensorSnapshot(System.currentTimeMillis());
+      } finally {
+        lock.unlock();
+      }
+    }, periodMillis);
+  }
+
+  // 每次操作後重新計時；沒有餘額也沒有刷卡時取消計時器
+  private void rearmSession() {
+    if (timerWheel == null) return;
+    lock.lock();
+    try {
+      if (sessionTimer != null) sessionTimer.cancel();
+      sessionTimer = null;
+      long generation = ++sessionGeneration;
+      if ((balance > 0 || currentMemberId != 0) && timerWheel != null) {
+        sessionTimer = timerWheel.schedule(() -> onSessionTimeout(generation), sessionTimeoutMillis);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void onSessionTimeout(long generation) {
+    lock.lock();
+    try {
+      // 已有新的操作或計時器被換掉時不處理
+      if (generation != sessionGeneration) return;
+      if (balance <= 0) {
+        // 只刷卡沒投幣就離開：清除會員，下一位顧客不會沿用會員價
+        if (currentMemberId != 0) System.out.println("【系統】閒置逾時，清除會員");
+        currentMemberId = 0;
+        redirectSuggestion = null;
+        return;
       }
+      if (currentState != hasMoneyState && currentState != soldOutState) return;
+      System.out.println("【系統】閒置逾時，自動退幣");
+      cancel();
+    } finally {
+      lock.unlock();
     }
-    currentDrink = null;
+  }
+
+  /**
+   * 銷售與遙測經由離線暫存區上傳：以 recordsPerFrame 筆為一個訊框寫入 outbox，
+   * 由背景執行緒送到 uplink，交易只等寫檔、不等網路。離線時累積在 outbox，
+   * 恢復連線 ({@link #onReconnected()}) 時立即補送，連線中上傳失敗則每隔 retryInterval 重試。
+   */
+  public void attachOutbox(OfflineOutbox outbox, OutboxSink uplink, int recordsPerFrame, Duration retryInterval) {
+    OutboxUploader uploader = new OutboxUploader(machineId, outbox, uplink, getMaintenanceState()::isOnline, retryInterval);
+    OutboxUploader previous;
+    lock.lock();
+    try {
+      previous = outboxUploader;
+      this.outbox = outbox;
+      this.outboxUploader = uploader;
+      this.telemetry = new TelemetryBatcher(machineId, recordsPerFrame, frame -> {
+        try {
+          outbox.append(frame);
+        } catch (IOException e) {
+          // 交易已完成，不能因為寫不進暫存區而回滾
+          System.out.println("【離線暫存】寫入失敗: " + e.getMessage());
+          return;
+        }
+        uploader.wake();
+      });
+    } finally {
+      lock.unlock();
+    }
+    if (previous != null) previous.close();
+    uploader.wake();
+  }
+
+  /** 同上，每 30 秒重試一次。 */
+  public void attachOutbox(OfflineOutbox outbox, OutboxSink uplink, int recordsPerFrame) {
+    attachOutbox(outbox, uplink, recordsPerFrame, Duration.ofSeconds(30));
+  }
+
+  /** 停止背景上傳，之後的遙測不再寫入 outbox；未送出的紀錄留在 outbox。應在關閉 outbox 之前呼叫。 */
+  public void detachOutbox() {
+    OutboxUploader uploader;
+    lock.lock();
+    try {
+      uploader = outboxUploader;
+      if (uploader == null) return;
+      telemetry.flush();
+      telemetry = null;
+      outbox = null;
+      outboxUploader = null;
+    } finally {
+      lock.unlock();
+    }
+    uploader.close();
+  }
+
+  /** 網路由離線恢復時由維護狀態呼叫：未滿一框的紀錄也一併打包，再通知背景補送。 */
+  public void onReconnected() {
+    OutboxUploader uploader;
+    lock.lock();
+    try {
+      uploader = outboxUploader;
+      if (uploader == null) return;
+      telemetry.flush();
+    } finally {
+      lock.unlock();
+    }
+    uploader.wake();
+  }
+
+  /** 顧客刷會員卡，本次交易依會員名錄計價；交易完成、退幣或閒置逾時後清除。 */
+  public void identifyMember(long memberId) {
+    lock.lock();
+    try {
+      this.currentMemberId = memberId;
+      rearmSession();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int priceForCurrentMember(Drink drink) {
+    PromotionEvaluatedEvent event = new PromotionEvaluatedEvent();
+    event.begin();
+    int slot = memberDirectory != null ? memberDirectory.indexOf(currentMemberId) : -1;
+    boolean vip = slot >= 0 && memberDirectory.isVipAt(slot);
+    int score = slot >= 0 ? memberDirectory.scoreAt(slot) : 0;
+    int price = slot < 0
+        ? discountEngine.applyPromotion(drink, balance, false)
+        : discountEngine.applyPromotion(drink, balance, vip, score);
+    event.finish(machineId, drink.getId(), drink.getPrice(), balance, slot >= 0 ? currentMemberId : 0,
+        vip, score, discountEngine.getRules() != null, price);
+    return price;
+  }
+
+  /**
+   * 以新的庫存表整批替換目前庫存 (呼叫端交出 next 的所有權，之後不應再修改)，
+   * 再通知同排索引與銷售預測：下架的品項視為售完，庫存有變的品項記為補貨。
+   */
+  public void replaceInventory(Map<String, Drink> next) {
+    lock.lock();
+    try {
+      Map<String, Drink> previous = inventory;
+      inventory = next;
+      for (Drink old : previous.values()) {
+        if (!next.containsKey(old.getId())) onStockChanged(new Drink(old.getId(), old.getName(), old.getPrice(), 0, old.isHot()));
+      }
+      for (Drink d : next.values()) {
+        onStockChanged(d);
+        Drink old = previous.get(d.getId());
+        if (stockForecaster != null && (old == null || old.getStock() != d.getStock())) {
+          stockForecaster.recordRestock(machineId, d.getId(), d.getStock());
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** 庫存變動後呼叫，讓同排機台的共用索引保持最新。 */
+  public void onStockChanged(Drink drink) {
+    if (bank != null) bank.onStockChanged(this, drink);
+  }
+
+  void joinBank(MachineBank bank, int position) {
+    this.bank = bank;
+    this.bankPosition = position;
   }
 
   // Getters & Setters
-  public void setState(VendingMachineState state) { this.currentState = state; }
+  public String getMachineId() { return machineId; }
+  public void setState(VendingMachineState state) {
+    if (state != currentState) StateTransitionEvent.emit(machineId, currentState, state);
+    this.currentState = state;
+  }
   public VendingMachineState getCurrentState() { return currentState; }
   public VendingMachineState getIdleState() { return idleState; }
   public VendingMachineState getHasMoneyState() { return hasMoneyState; }
   public VendingMachineState getSoldState() { return soldState; }
   public VendingMachineState getSoldOutState() { return soldOutState; }
-  public VendingMachineState getMaintenanceState() { return maintenanceState; }
+  public MaintenanceState getMaintenanceState() {
+    if (maintenanceState == null && shared) maintenanceState = new MaintenanceState(this);
+    return maintenanceState;
+  }
+  public boolean isShared() { return shared; }
   public int getBalance() { return balance; }
   public void setBalance(int b) { this.balance = b; }
   public Map<String, Drink> getInventory() { return inventory; }
   public void setCurrentDrink(Drink d) { this.currentDrink = d; }
+  public ChangeService getChangeService() { return changeService; }
+  public DiscountEngine getDiscountEngine() { return discountEngine; }
+  public Map<Integer, Integer> getLastChange() { return lastChange; }
+  public TelemetryBatcher getTelemetry() { return telemetry; }
+  public void setTelemetry(TelemetryBatcher telemetry) { this.telemetry = telemetry; }
+  public OfflineOutbox getOutbox() { return outbox; }
+  public void setFraudDetector(FraudDetector fraudDetector) { this.fraudDetector = fraudDetector; }
+  public StockForecaster getStockForecaster() { return stockForecaster; }
+  public void setStockForecaster(StockForecaster stockForecaster) { this.stockForecaster = stockForecaster; }
+  public ReentrantLock getLock() { return lock; }
+  public DispensePipeline getDispensePipeline() { return dispensePipeline; }
+  public SensorTimeSeriesStore getSensorStore() { return sensorStore; }
+  /** 同一機隊的機台共用一個倉庫切出感測器歷史；未設定時每台各自配置。須在第一次記錄讀值前設定。 */
+  public void setSensorStore(SensorTimeSeriesStore sensorStore) { this.sensorStore = sensorStore; }
+  public MemberDirectory getMemberDirectory() { return memberDirectory; }
+  public void setMemberDirectory(MemberDirectory memberDirectory) { this.memberDirectory = memberDirectory; }
+  public long getCurrentMemberId() { return currentMemberId; }
+  public MachineBank getBank() { return bank; }
+  public int getBankPosition() { return bankPosition; }
+  public VendingMachine getRedirectSuggestion() { return redirectSuggestion; }
+  public void setRedirectSuggestion(VendingMachine machine) { this.redirectSuggestion = machine; }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.vending.diagnostics;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次完整自檢的結果，順序與提交的檢測相同。
+ */
+public final class DiagnosticReport {
+  private final List<ProbeResult> results;
+  private final long elapsedMillis;
+
+  DiagnosticReport(List<ProbeResult> results, long elapsedMillis) {
+    this.results = Collections.unmodifiableList(results);
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public List<ProbeResult> getResults() { return results; }
+  public long getElapsedMillis() { return elapsedMillis; }
+
+  public ProbeResult get(String name) {
+    for (ProbeResult r : results) {
+      if (r.getName().equals(name)) return r;
+    }
+    return null;
+  }
+
+  public boolean isHealthy() {
+    for (ProbeResult r : results) {
+      if (r.getStatus() != ProbeResult.Status.OK) return false;
+    }
+    return true;
+  }
+}
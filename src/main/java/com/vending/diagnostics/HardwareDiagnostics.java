@@ -0,0 +1,80 @@
+package com.vending.diagnostics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 以虛擬執行緒平行執行所有檢測，每項各自計算逾時。
+ * 逾時的檢測會被中斷，離開前最多再等 {@link #TERMINATION_GRACE} 讓它們結束；
+ * 回應中斷的檢測不會留在背景，忽略中斷的檢測則可能在 run 返回後繼續執行，此時印出警告。
+ */
+public class HardwareDiagnostics {
+  static final Duration TERMINATION_GRACE = Duration.ofMillis(500);
+  private final Duration defaultTimeout;
+
+  public HardwareDiagnostics(Duration defaultTimeout) {
+    this.defaultTimeout = defaultTimeout;
+  }
+
+  public DiagnosticReport run(List<? extends SubsystemProbe> probes) {
+    long start = System.nanoTime();
+    List<ProbeResult> results = new ArrayList<>(probes.size());
+    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    try {
+      List<Future<ProbeResult>> futures = new ArrayList<>(probes.size());
+      for (SubsystemProbe p : probes) {
+        futures.add(executor.submit(() -> {
+          long t0 = System.nanoTime();
+          ProbeResult r = p.probe();
+          return r.withElapsed(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+        }));
+      }
+      for (int i = 0; i < probes.size(); i++) {
+        results.add(await(probes.get(i), futures.get(i), start));
+      }
+    } finally {
+      executor.shutdownNow();
+      awaitTermination(executor);
+    }
+    return new DiagnosticReport(results, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  private ProbeResult await(SubsystemProbe probe, Future<ProbeResult> future, long start) {
+    Duration timeout = probe.getTimeout() != null ? probe.getTimeout() : defaultTimeout;
+    long deadline = start + timeout.toNanos();
+    try {
+      return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      // 不在此 cancel：取消後執行器就視為已結束，awaitTermination 等不到仍在收尾的檢測；
+      // 逾時的檢測由 run 結束時的 shutdownNow 一併中斷
+      return new ProbeResult(probe.getName(), ProbeResult.Status.TIMEOUT, "逾時", elapsedSince(start));
+    } catch (ExecutionException e) {
+      return new ProbeResult(probe.getName(), ProbeResult.Status.FAILED, String.valueOf(e.getCause()), elapsedSince(start));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new ProbeResult(probe.getName(), ProbeResult.Status.FAILED, "自檢被中斷", elapsedSince(start));
+    }
+  }
+
+  // 只等一小段時間，避免忽略中斷的驅動程式拖住整個維護流程
+  private static void awaitTermination(ExecutorService executor) {
+    try {
+      if (!executor.awaitTermination(TERMINATION_GRACE.toMillis(), TimeUnit.MILLISECONDS)) {
+        System.out.println("【系統自檢】有檢測忽略中斷，仍在背景執行");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static long elapsedSince(long start) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+}
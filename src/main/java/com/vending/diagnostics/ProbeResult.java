@@ -0,0 +1,35 @@
+package com.vending.diagnostics;
+
+/**
+ * 單項檢測結果。
+ */
+public final class ProbeResult {
+  public enum Status { OK, ALARM, TIMEOUT, FAILED }
+
+  private final String name;
+  private final Status status;
+  private final String message;
+  private final long elapsedMillis;
+
+  public ProbeResult(String name, Status status, String message, long elapsedMillis) {
+    this.name = name;
+    this.status = status;
+    this.message = message;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public static ProbeResult ok(String name, String message) { return new ProbeResult(name, Status.OK, message, 0); }
+  public static ProbeResult alarm(String name, String message) { return new ProbeResult(name, Status.ALARM, message, 0); }
+
+  ProbeResult withElapsed(long millis) { return new ProbeResult(name, status, message, millis); }
+
+  public String getName() { return name; }
+  public Status getStatus() { return status; }
+  public String getMessage() { return message; }
+  public long getElapsedMillis() { return elapsedMillis; }
+
+  @Override
+  public String toString() {
+    return name + " [" + status + "] " + message + " (" + elapsedMillis + "ms)";
+  }
+}
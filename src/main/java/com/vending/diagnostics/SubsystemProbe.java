@@ -0,0 +1,16 @@
+package com.vending.diagnostics;
+
+import java.time.Duration;
+
+/**
+ * 單一子系統或貨道的硬體檢測。可換成實際驅動程式或模擬實作。
+ * 實作應回應中斷，逾時時會被取消。
+ */
+public interface SubsystemProbe {
+  String getName();
+
+  ProbeResult probe() throws Exception;
+
+  /** 此檢測的逾時；null 表示使用 HardwareDiagnostics 的預設值。 */
+  default Duration getTimeout() { return null; }
+}
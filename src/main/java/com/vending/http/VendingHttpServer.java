@@ -0,0 +1,238 @@
+package com.vending.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.vending.core.VendingMachine;
+import com.vending.model.Drink;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 內嵌 HTTP 服務：查詢庫存、餘額、狀態、報價，並接受遠端購買。
+ * 每個請求由一條虛擬執行緒處理；回應設定固定長度以維持 keep-alive。
+ */
+public class VendingHttpServer {
+  private static final int BUFFER_POOL_SIZE = 256;
+  private static final int BUFFER_MAX_RETAINED = 16 * 1024;
+
+  private final VendingMachine machine;
+  private final HttpServer server;
+  private final ExecutorService executor;
+  // 虛擬執行緒遇到 synchronized 會綁死載體執行緒，因此改用 ReentrantLock 保護機台；
+  // 與計時器共用機台自己的鎖，逾時退幣不會和請求交錯
+  private final ReentrantLock machineLock;
+  private final ArrayBlockingQueue<StringBuilder> bufferPool = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
+
+  public VendingHttpServer(VendingMachine machine, InetSocketAddress address) throws IOException {
+    this.machine = machine;
+    this.machineLock = machine.getLock();
+    this.server = HttpServer.create(address, 0);
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    server.setExecutor(executor);
+    server.createContext("/inventory", ex -> handle(ex, "GET", this::inventory));
+    server.createContext("/balance", ex -> handle(ex, "GET", this::balance));
+    server.createContext("/state", ex -> handle(ex, "GET", this::state));
+    server.createContext("/quote", ex -> handle(ex, "GET", this::quote));
+    server.createContext("/purchase", ex -> handle(ex, "POST", this::purchase));
+  }
+
+  public void start() { server.start(); }
+
+  public void stop() {
+    server.stop(0);
+    executor.close();
+  }
+
+  public int getPort() { return server.getAddress().getPort(); }
+
+  private interface Route {
+    int write(Map<String, String> params, StringBuilder out);
+  }
+
+  private void handle(HttpExchange ex, String method, Route route) throws IOException {
+    try (ex) {
+      // 把請求主體讀完，連線才能被重複使用
+      ex.getRequestBody().readAllBytes();
+      StringBuilder out = borrowBuffer();
+      try {
+        int status;
+        if (!method.equals(ex.getRequestMethod())) {
+          status = 405;
+          out.append("{\"error\":\"method not allowed\"}");
+        } else {
+          Map<String, String> params = parseQuery(ex.getRequestURI().getRawQuery());
+          machineLock.lock();
+          try {
+            status = route.write(params, out);
+          } catch (RuntimeException e) {
+            // 路由失敗時仍回應 JSON，不讓連線直接中斷
+            System.out.println("【HTTP】" + ex.getRequestURI() + " 處理失敗: " + e);
+            out.setLength(0);
+            status = error(500, "internal error: " + e, out);
+          } finally {
+            machineLock.unlock();
+          }
+        }
+        byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+          os.write(body);
+        }
+      } finally {
+        returnBuffer(out);
+      }
+    }
+  }
+
+  private StringBuilder borrowBuffer() {
+    StringBuilder sb = bufferPool.poll();
+    return sb != null ? sb : new StringBuilder(512);
+  }
+
+  private void returnBuffer(StringBuilder sb) {
+    if (sb.capacity() > BUFFER_MAX_RETAINED) return;
+    sb.setLength(0);
+    bufferPool.offer(sb);
+  }
+
+  private int inventory(Map<String, String> params, StringBuilder out) {
+    out.append('[');
+    boolean first = true;
+    for (Drink d : new TreeMap<>(machine.getInventory()).values()) {
+      if (!first) out.append(',');
+      first = false;
+      appendDrink(d, out);
+    }
+    out.append(']');
+    return 200;
+  }
+
+  private int balance(Map<String, String> params, StringBuilder out) {
+    out.append("{\"balance\":").append(machine.getBalance()).append('}');
+    return 200;
+  }
+
+  private int state(Map<String, String> params, StringBuilder out) {
+    out.append("{\"state\":\"").append(stateName()).append("\",\"balance\":")
+        .append(machine.getBalance()).append('}');
+    return 200;
+  }
+
+  private int quote(Map<String, String> params, StringBuilder out) {
+    Drink drink = machine.getInventory().get(params.get("id"));
+    if (drink == null) return error(404, "品項不存在", out);
+    int balance = parseInt(params.get("balance"), machine.getBalance());
+    boolean vip = Boolean.parseBoolean(params.get("vip"));
+    int finalPrice = machine.getDiscountEngine().applyPromotion(drink, balance, vip);
+    out.append("{\"id\":\"").append(escape(drink.getId())).append("\",\"price\":").append(drink.getPrice())
+        .append(",\"finalPrice\":").append(finalPrice).append(",\"balance\":").append(balance).append('}');
+    return 200;
+  }
+
+  /**
+   * 遠端購買：遠端付款與機台上的餘額分開處理，機台有人正在使用 (有餘額或已刷會員卡) 時回應 409，
+   * 不會動用現場顧客投入的硬幣。購買失敗時遠端投入的金額全數以 refund 退回。
+   */
+  private int purchase(Map<String, String> params, StringBuilder out) {
+    Drink drink = machine.getInventory().get(params.get("id"));
+    if (drink == null) return error(404, "品項不存在", out);
+    String coins = params.get("coins");
+    List<Integer> payment = new ArrayList<>();
+    if (coins != null && !coins.isEmpty()) {
+      for (String c : coins.split(",")) {
+        int amount = parseInt(c.trim(), -1);
+        if (amount <= 0) return error(400, "硬幣格式錯誤: " + c, out);
+        payment.add(amount);
+      }
+    }
+    if (machine.getCurrentState() != machine.getIdleState() || machine.getBalance() != 0
+        || machine.getCurrentMemberId() != 0) {
+      return error(409, "機台使用中", out);
+    }
+
+    // 機台不收的硬幣直接退回
+    int refund = 0;
+    for (int amount : payment) {
+      int before = machine.getBalance();
+      machine.insertCoin(amount);
+      if (machine.getBalance() == before) refund += amount;
+    }
+    int stockBefore = drink.getStock();
+    machine.selectDrink(drink.getId());
+    boolean sold = drink.getStock() < stockBefore;
+    if (!sold) {
+      // 機台上的餘額全部是這筆遠端付款，退幣後回到待機
+      refund += machine.getBalance();
+      machine.cancel();
+    }
+
+    out.append("{\"success\":").append(sold).append(",\"state\":\"").append(stateName())
+        .append("\",\"balance\":").append(machine.getBalance()).append(",\"change\":{");
+    if (sold) {
+      boolean first = true;
+      for (Map.Entry<Integer, Integer> e : new TreeMap<>(machine.getLastChange()).entrySet()) {
+        if (!first) out.append(',');
+        first = false;
+        out.append('"').append(e.getKey()).append("\":").append(e.getValue());
+      }
+    }
+    out.append("},\"refund\":").append(refund).append(",\"drink\":");
+    appendDrink(drink, out);
+    out.append('}');
+    return sold ? 200 : 409;
+  }
+
+  private String stateName() {
+    return machine.getCurrentState().getClass().getSimpleName();
+  }
+
+  private static void appendDrink(Drink d, StringBuilder out) {
+    out.append("{\"id\":\"").append(escape(d.getId())).append("\",\"name\":\"").append(escape(d.getName()))
+        .append("\",\"price\":").append(d.getPrice()).append(",\"stock\":").append(d.getStock())
+        .append(",\"hot\":").append(d.isHot()).append('}');
+  }
+
+  private static int error(int status, String message, StringBuilder out) {
+    out.append("{\"error\":\"").append(escape(message)).append("\"}");
+    return status;
+  }
+
+  private static String escape(String s) {
+    if (s == null) return "";
+    return s.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  private static int parseInt(String s, int fallback) {
+    if (s == null) return fallback;
+    try {
+      return Integer.parseInt(s);
+    } catch (NumberFormatException e) {
+      return fallback;
+    }
+  }
+
+  private static Map<String, String> parseQuery(String query) {
+    Map<String, String> params = new HashMap<>();
+    if (query == null || query.isEmpty()) return params;
+    for (String pair : query.split("&")) {
+      int eq = pair.indexOf('=');
+      String key = eq < 0 ? pair : pair.substring(0, eq);
+      String value = eq < 0 ? "" : pair.substring(eq + 1);
+      params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return params;
+  }
+}
@@ -0,0 +1,41 @@
+package com.vending.jfr;
+
+import java.util.Map;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 找零計算：應找金額與實際出幣組合。 */
+@Name("com.vending.ChangeCalculated")
+@Label("Change Calculated")
+@Category({"Vending", "Cash"})
+@Description("找零計算與硬幣保留")
+@StackTrace(false)
+public class ChangeCalculatedEvent extends Event {
+  @Label("Machine") String machineId;
+  @Label("Requested") int requested;
+  @Label("Paid") int paid;
+  @Label("Plan") String plan;
+  @Label("Success") boolean success;
+
+  public void finish(String machineId, int requested, Map<Integer, Integer> payout) {
+    end();
+    if (!shouldCommit()) return;
+    int total = 0;
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<Integer, Integer> e : payout.entrySet()) {
+      total += e.getKey() * e.getValue();
+      if (sb.length() > 0) sb.append(',');
+      sb.append(e.getKey()).append('x').append(e.getValue());
+    }
+    this.machineId = machineId;
+    this.requested = requested;
+    this.paid = total;
+    this.plan = sb.toString();
+    this.success = total == requested;
+    commit();
+  }
+}
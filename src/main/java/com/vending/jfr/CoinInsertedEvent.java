@@ -0,0 +1,33 @@
+package com.vending.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 投幣 (不論是否被接受)。 */
+@Name("com.vending.CoinInserted")
+@Label("Coin Inserted")
+@Category({"Vending", "Transaction"})
+@Description("顧客投入一枚硬幣")
+@StackTrace(false)
+public class CoinInsertedEvent extends Event {
+  @Label("Machine") String machineId;
+  @Label("Amount") int amount;
+  @Label("Accepted") boolean accepted;
+  @Label("Balance After") int balanceAfter;
+  @Label("State") String state;
+
+  public static void emit(String machineId, int amount, boolean accepted, int balanceAfter, String state) {
+    CoinInsertedEvent e = new CoinInsertedEvent();
+    if (!e.shouldCommit()) return;
+    e.machineId = machineId;
+    e.amount = amount;
+    e.accepted = accepted;
+    e.balanceAfter = balanceAfter;
+    e.state = state;
+    e.commit();
+  }
+}
@@ -0,0 +1,34 @@
+package com.vending.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 選擇商品，持續時間涵蓋計價、找零到出貨完成。 */
+@Name("com.vending.DrinkSelected")
+@Label("Drink Selected")
+@Category({"Vending", "Transaction"})
+@Description("顧客按下商品選擇鍵後的整段處理")
+@StackTrace(false)
+public class DrinkSelectedEvent extends Event {
+  @Label("Machine") String machineId;
+  @Label("Drink") String drinkId;
+  @Label("Balance Before") int balanceBefore;
+  @Label("Balance After") int balanceAfter;
+  @Label("Result State") String resultState;
+
+  /** 結束計時並在啟用時提交；未啟用時不做任何事。 */
+  public void finish(String machineId, String drinkId, int balanceBefore, int balanceAfter, Object resultState) {
+    end();
+    if (!shouldCommit()) return;
+    this.machineId = machineId;
+    this.drinkId = drinkId;
+    this.balanceBefore = balanceBefore;
+    this.balanceAfter = balanceAfter;
+    this.resultState = resultState == null ? null : resultState.getClass().getSimpleName();
+    commit();
+  }
+}
@@ -0,0 +1,29 @@
+package com.vending.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 維護模式下的操作：補貨、硬體檢測、成本評估、結束維護。 */
+@Name("com.vending.MaintenanceAction")
+@Label("Maintenance Action")
+@Category({"Vending", "Maintenance"})
+@Description("維護模式中的一次操作")
+@StackTrace(false)
+public class MaintenanceActionEvent extends Event {
+  @Label("Machine") String machineId;
+  @Label("Action") String action;
+  @Label("Detail") String detail;
+
+  public void finish(String machineId, String action, String detail) {
+    end();
+    if (!shouldCommit()) return;
+    this.machineId = machineId;
+    this.action = action;
+    this.detail = detail;
+    commit();
+  }
+}
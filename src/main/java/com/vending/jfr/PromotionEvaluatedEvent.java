@@ -0,0 +1,42 @@
+package com.vending.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 一次促銷計價的輸入與結果。 */
+@Name("com.vending.PromotionEvaluated")
+@Label("Promotion Evaluated")
+@Category({"Vending", "Pricing"})
+@Description("結帳時的促銷計價")
+@StackTrace(false)
+public class PromotionEvaluatedEvent extends Event {
+  @Label("Machine") String machineId;
+  @Label("Drink") String drinkId;
+  @Label("List Price") int listPrice;
+  @Label("Balance") int balance;
+  @Label("Member Id") @Description("0 表示非會員") long memberId;
+  @Label("VIP") boolean vip;
+  @Label("Member Score") @Description("非會員時為 0") int memberScore;
+  @Label("Rule Based") boolean ruleBased;
+  @Label("Final Price") int finalPrice;
+
+  public void finish(String machineId, String drinkId, int listPrice, int balance, long memberId,
+                     boolean vip, int memberScore, boolean ruleBased, int finalPrice) {
+    end();
+    if (!shouldCommit()) return;
+    this.machineId = machineId;
+    this.drinkId = drinkId;
+    this.listPrice = listPrice;
+    this.balance = balance;
+    this.memberId = memberId;
+    this.vip = vip;
+    this.memberScore = memberScore;
+    this.ruleBased = ruleBased;
+    this.finalPrice = finalPrice;
+    commit();
+  }
+}
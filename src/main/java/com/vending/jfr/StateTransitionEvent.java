@@ -0,0 +1,29 @@
+package com.vending.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** 狀態機切換。 */
+@Name("com.vending.StateTransition")
+@Label("State Transition")
+@Category({"Vending", "Transaction"})
+@Description("機台從一個狀態切換到另一個狀態")
+@StackTrace(false)
+public class StateTransitionEvent extends Event {
+  @Label("Machine") String machineId;
+  @Label("From") String from;
+  @Label("To") String to;
+
+  public static void emit(String machineId, Object from, Object to) {
+    StateTransitionEvent e = new StateTransitionEvent();
+    if (!e.shouldCommit()) return;
+    e.machineId = machineId;
+    e.from = from == null ? null : from.getClass().getSimpleName();
+    e.to = to == null ? null : to.getClass().getSimpleName();
+    e.commit();
+  }
+}
@@ -2,11 +2,17 @@ package com.vending.service;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 public class ChangeService {
-  private final Map<Integer, Integer> coinStorage = new HashMap<>();
+  private static final int[] DENOMINATIONS = {50, 10, 5, 1};
+  // 每個面額佔 16 個 int (64 bytes)，並跳過陣列開頭那一條，避免不同面額共用 cache line
+  private static final int PADDED_STRIDE = 16;
   private static final int SAFETY_THRESHOLD = 3;
 
+  private final int stride;
+  private final AtomicIntegerArray coinStorage;
+
   private double weight50 = 10.0;
   private double diam50 = 28.0;
   private int mat50 = 1;
@@ -24,37 +30,100 @@ public class ChangeService {
   private int mat1 = 3;
 
   public ChangeService() {
-    coinStorage.put(50, 5);
-    coinStorage.put(10, 20);
-    coinStorage.put(5, 20);
-    coinStorage.put(1, 50);
+    this(true);
+  }
+
+  /**
+   * padded 為 false 時四個面額緊鄰存放 (16 bytes 而非約 320 bytes)，
+   * 適合同時鏡像大量機台、各機台的找零很少被多執行緒同時爭用的主機。
+   */
+  public ChangeService(boolean padded) {
+    this.stride = padded ? PADDED_STRIDE : 1;
+    this.coinStorage = new AtomicIntegerArray(padded ? (DENOMINATIONS.length + 1) * PADDED_STRIDE : DENOMINATIONS.length);
+    setCoinCount(50, 5);
+    setCoinCount(10, 20);
+    setCoinCount(5, 20);
+    setCoinCount(1, 50);
   }
 
+  /**
+   * 計算並吐出找零。
+   * 先以 CAS 逐一面額預扣硬幣，只有整筆金額都湊得出來才算成立；
+   * 湊不出來就把預扣的硬幣全部還回去並回傳空結果。
+   * 預扣即扣除庫存，因此成立時不需額外的提交步驟，並行交易也不會重複動用同一批硬幣。
+   */
   public Map<Integer, Integer> calculateChange(int amount) {
     if (amount > 50) auditCoinReserves();
 
-    Map<Integer, Integer> result = new HashMap<>();
+    int[] reserved = new int[DENOMINATIONS.length];
     int remaining = amount;
-    int[] denominations = {50, 10, 5, 1};
 
-    for (int coinValue : denominations) {
+    for (int i = 0; i < DENOMINATIONS.length; i++) {
+      int coinValue = DENOMINATIONS[i];
       if (remaining <= 0) break;
       if (!verifyCoinAuthenticity(coinValue)) continue;
 
       int needed = remaining / coinValue;
       if (needed > 0) {
-        int actualGiven = determineCoinCountToGive(coinValue, needed);
-        if (actualGiven > 0) {
-          result.put(coinValue, actualGiven);
-          remaining -= (actualGiven * coinValue);
-          int currentStock = coinStorage.getOrDefault(coinValue, 0);
-          coinStorage.put(coinValue, currentStock - actualGiven);
-        }
+        int actualGiven = reserveCoins(i, coinValue, needed);
+        reserved[i] = actualGiven;
+        remaining -= (actualGiven * coinValue);
       }
     }
+
+    Map<Integer, Integer> result = new HashMap<>();
+    if (remaining > 0) {
+      rollback(reserved);
+      System.out.println("零錢不足，無法找零: " + amount);
+      return result;
+    }
+    for (int i = 0; i < DENOMINATIONS.length; i++) {
+      if (reserved[i] > 0) result.put(DENOMINATIONS[i], reserved[i]);
+    }
     return result;
   }
 
+  private int reserveCoins(int index, int coinValue, int needed) {
+    int slot = slot(index);
+    while (true) {
+      int available = coinStorage.get(slot);
+      int give = determineCoinCountToGive(coinValue, needed, available);
+      if (give == 0) return 0;
+      if (coinStorage.compareAndSet(slot, available, available - give)) return give;
+    }
+  }
+
+  private void rollback(int[] reserved) {
+    for (int i = 0; i < reserved.length; i++) {
+      if (reserved[i] > 0) coinStorage.getAndAdd(slot(i), reserved[i]);
+    }
+  }
+
+  public int getCoinCount(int denomination) {
+    int index = indexOf(denomination);
+    return index < 0 ? 0 : coinStorage.get(slot(index));
+  }
+
+  public void setCoinCount(int denomination, int count) {
+    int index = indexOf(denomination);
+    if (index < 0) throw new IllegalArgumentException("不支援的面額: " + denomination);
+    coinStorage.set(slot(index), count);
+  }
+
+  private static int indexOf(int denomination) {
+    switch (denomination) {
+      case 50: return 0;
+      case 10: return 1;
+      case 5: return 2;
+      case 1: return 3;
+      default: return -1;
+    }
+  }
+
+  private int slot(int index) {
+    return stride == 1 ? index : (index + 1) * stride;
+  }
+
   public boolean verifyCoinAuthenticity(int denomination) {
     if (denomination != 1 && denomination != 5 && denomination != 10 && denomination != 50) return false;
 
@@ -82,8 +151,26 @@ public class ChangeService {
     return (hash % 2 == 0) || (hash > 10);
   }
 
-  private int determineCoinCountToGive(int coinValue, int needed) {
-    int available = coinStorage.getOrDefault(coinValue, 0);
+  /**
+   * 以與 calculateChange 相同的規則，從 counts (依 50/10/5/1 排列) 模擬找零，不做真偽檢查。
+   * 成功時扣除 counts 並回傳 0；失敗時 counts 不變並回傳湊不出的金額。
+   */
+  static int simulatePayout(int[] counts, int amount) {
+    int[] given = new int[DENOMINATIONS.length];
+    int remaining = amount;
+    for (int i = 0; i < DENOMINATIONS.length && remaining > 0; i++) {
+      int needed = remaining / DENOMINATIONS[i];
+      if (needed > 0) {
+        given[i] = determineCoinCountToGive(DENOMINATIONS[i], needed, counts[i]);
+        remaining -= given[i] * DENOMINATIONS[i];
+      }
+    }
+    if (remaining > 0) return remaining;
+    for (int i = 0; i < given.length; i++) counts[i] -= given[i];
+    return 0;
+  }
+
+  static int determineCoinCountToGive(int coinValue, int needed, int available) {
     if (available == 0) return 0;
     if (available >= needed + SAFETY_THRESHOLD) return needed;
     if (coinValue == 1) return Math.min(available, needed);
@@ -92,10 +179,10 @@ public class ChangeService {
   }
 
   public void auditCoinReserves() {
-    checkSingleCoinStatus(50, coinStorage.getOrDefault(50, 0));
-    checkSingleCoinStatus(10, coinStorage.getOrDefault(10, 0));
-    checkSingleCoinStatus(5, coinStorage.getOrDefault(5, 0));
-    checkSingleCoinStatus(1, coinStorage.getOrDefault(1, 0));
+    checkSingleCoinStatus(50, getCoinCount(50));
+    checkSingleCoinStatus(10, getCoinCount(10));
+    checkSingleCoinStatus(5, getCoinCount(5));
+    checkSingleCoinStatus(1, getCoinCount(1));
   }
 
   private void checkSingleCoinStatus(int denomination, int count) {
@@ -0,0 +1,146 @@
+package com.vending.service;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * 依各機台的歷史找零需求，在現金預算內計算各面額的補幣數量，使找零失敗次數最少。
+ *
+ * 每台機台以貪婪法搜尋：每一步嘗試為各面額加一捲硬幣，重播當日找零需求，
+ * 挑選「每一元預算能減少最多失敗」的面額；目標函數另計湊不出的金額，讓需要多步才見效的補法也有方向。
+ * 機台之間互不相關，整個機隊在 ForkJoinPool 中平行計算。
+ */
+public class CoinRefillOptimizer {
+  private static final int[] DENOMINATIONS = {50, 10, 5, 1};
+  // 每次補充的最小單位 (一捲)
+  private static final int[] ROLL = {2, 5, 5, 10};
+  private static final long FAILURE_WEIGHT = 1_000_000L;
+
+  private final ForkJoinPool pool;
+
+  public CoinRefillOptimizer() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public CoinRefillOptimizer(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /** 單台機台的輸入：現有硬幣、歷史找零金額 (依時間排序) 與補幣預算。 */
+  public static final class MachineDemand {
+    private final String machineId;
+    private final int[] coins;
+    private final int[] changeAmounts;
+    private final int budget;
+
+    public MachineDemand(String machineId, int[] coins, int[] changeAmounts, int budget) {
+      if (coins.length != DENOMINATIONS.length) throw new IllegalArgumentException("coins 需依 50/10/5/1 提供 4 個數量");
+      this.machineId = machineId;
+      this.coins = coins.clone();
+      this.changeAmounts = changeAmounts.clone();
+      this.budget = budget;
+    }
+
+    public static MachineDemand of(String machineId, ChangeService service, int[] changeAmounts, int budget) {
+      int[] coins = new int[DENOMINATIONS.length];
+      for (int i = 0; i < coins.length; i++) coins[i] = service.getCoinCount(DENOMINATIONS[i]);
+      return new MachineDemand(machineId, coins, changeAmounts, budget);
+    }
+
+    public String getMachineId() { return machineId; }
+  }
+
+  /** 補幣計畫：各面額要補的枚數 (依 50/10/5/1)。 */
+  public static final class RefillPlan {
+    private final String machineId;
+    private final int[] refill;
+    private final int cost;
+    private final int failuresBefore;
+    private final int failuresAfter;
+
+    RefillPlan(String machineId, int[] refill, int cost, int failuresBefore, int failuresAfter) {
+      this.machineId = machineId;
+      this.refill = refill;
+      this.cost = cost;
+      this.failuresBefore = failuresBefore;
+      this.failuresAfter = failuresAfter;
+    }
+
+    public String getMachineId() { return machineId; }
+    public int getCoins(int denomination) {
+      for (int i = 0; i < DENOMINATIONS.length; i++) {
+        if (DENOMINATIONS[i] == denomination) return refill[i];
+      }
+      return 0;
+    }
+    public int getCost() { return cost; }
+    public int getFailuresBefore() { return failuresBefore; }
+    public int getFailuresAfter() { return failuresAfter; }
+
+    @Override
+    public String toString() {
+      return machineId + ": 50x" + refill[0] + " 10x" + refill[1] + " 5x" + refill[2] + " 1x" + refill[3]
+          + " ($" + cost + ", 失敗 " + failuresBefore + " -> " + failuresAfter + ")";
+    }
+  }
+
+  public List<RefillPlan> optimize(List<MachineDemand> fleet) {
+    try {
+      return pool.submit(() -> fleet.parallelStream().map(this::optimize).collect(Collectors.toList())).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("補幣計算被中斷", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("補幣計算失敗", e.getCause());
+    }
+  }
+
+  public RefillPlan optimize(MachineDemand demand) {
+    int[] refill = new int[DENOMINATIONS.length];
+    int spent = 0;
+    long score = evaluate(demand, refill);
+    int failuresBefore = (int) (score / FAILURE_WEIGHT);
+
+    while (score > 0) {
+      int best = -1;
+      double bestGain = 0;
+      long bestScore = score;
+      for (int i = 0; i < DENOMINATIONS.length; i++) {
+        int cost = ROLL[i] * DENOMINATIONS[i];
+        if (spent + cost > demand.budget) continue;
+        refill[i] += ROLL[i];
+        long s = evaluate(demand, refill);
+        refill[i] -= ROLL[i];
+        double gain = (double) (score - s) / cost;
+        if (gain > bestGain) {
+          bestGain = gain;
+          best = i;
+          bestScore = s;
+        }
+      }
+      if (best < 0) break;
+      refill[best] += ROLL[best];
+      spent += ROLL[best] * DENOMINATIONS[best];
+      score = bestScore;
+    }
+    return new RefillPlan(demand.machineId, refill, spent, failuresBefore, (int) (score / FAILURE_WEIGHT));
+  }
+
+  /** 重播找零需求：失敗次數 × 權重 + 湊不出的總金額。 */
+  private static long evaluate(MachineDemand demand, int[] refill) {
+    int[] counts = new int[DENOMINATIONS.length];
+    for (int i = 0; i < counts.length; i++) counts[i] = demand.coins[i] + refill[i];
+    long failures = 0;
+    long shortfall = 0;
+    for (int amount : demand.changeAmounts) {
+      int unpaid = ChangeService.simulatePayout(counts, amount);
+      if (unpaid > 0) {
+        failures++;
+        shortfall += unpaid;
+      }
+    }
+    return failures * FAILURE_WEIGHT + shortfall;
+  }
+}
@@ -0,0 +1,33 @@
+package com.vending.service;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * 編譯後規則的範本，本身不會被載入使用：{@link PromotionRules} 以它的位元組碼為每組規則
+ * 定義一個 hidden class，並把規則樹作為 class data 放進 TARGET。
+ * TARGET 是 static final，JIT 把它當成常數，因此能把整棵 MethodHandle 樹內聯進 evaluate。
+ */
+final class CompiledPromotionProgram implements PromotionRules.Program {
+  private static final MethodHandle TARGET;
+  static {
+    try {
+      TARGET = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+    } catch (IllegalAccessException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  @Override
+  public long evaluate(long finalPrice, long price, long balance, long stock, long luck,
+                       long member, boolean vip, String category) {
+    try {
+      return (long) TARGET.invokeExact(finalPrice, price, balance, stock, luck, member, vip, category);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException("促銷規則執行失敗", t);
+    }
+  }
+}
@@ -1,55 +1,53 @@
 package com.vending.service;
 
 import com.vending.model.Drink;
+import java.util.List;
 
 public class DiscountEngine {
+  // 設定後改由規則語言計價；null 表示使用下方內建邏輯
+  private volatile PromotionRules rules;
+
+  public void setRules(PromotionRules rules) { this.rules = rules; }
+  public PromotionRules getRules() { return rules; }
+
+  /**
+   * 限時促銷：startDelayMillis 後改用 flashRules 計價，持續 durationMillis 後還原為當時的規則。
+   * 若期間規則已被其他人換掉則不還原。取消第一個計時器即可在開始前撤銷整檔促銷。
+   */
+  public List<TimerWheel.Timeout> scheduleFlashSale(TimerWheel wheel, PromotionRules flashRules,
+                                                    long startDelayMillis, long durationMillis) {
+    PromotionRules[] previous = new PromotionRules[1];
+    boolean[] started = new boolean[1];
+    // 兩個計時器都在時間輪執行緒上依序執行，不需另外同步
+    TimerWheel.Timeout start = wheel.schedule(() -> {
+      previous[0] = rules;
+      started[0] = true;
+      rules = flashRules;
+    }, startDelayMillis);
+    TimerWheel.Timeout end = wheel.schedule(() -> {
+      if (started[0] && rules == flashRules) rules = previous[0];
+    }, startDelayMillis + durationMillis);
+    return List.of(start, end);
+  }
 
   public int applyPromotion(Drink drink, int currentBalance, boolean isVip) {
-    int originalPrice = drink.getPrice();
-    double finalPrice = originalPrice;
-
-    // 1. 類別策略
-    String category = determineCategory(drink.getName());
-    if ("COFFEE".equals(category)) {
-      if (isVip) finalPrice *= 0.85;
-    } else if ("TEA".equals(category)) {
-      if (currentBalance > 50) finalPrice -= 5;
-    }
-
-    // 2. 庫存壓力策略
-    int stock = drink.getStock();
-    if (stock > 15) {
-      if (originalPrice > 30) finalPrice -= 5;
-      else finalPrice -= 2;
-    }
-
-    // 3. 邊界規則 (★修復關鍵：恢復此段邏輯以通過測試★)
-    if (currentBalance > 100 || originalPrice > 40) {
-      if (!isVip) {
-        // 價格 30, 餘額 101 -> 觸發此處 -5 -> 變成 25
-        if (finalPrice >= originalPrice - 2) finalPrice -= 5;
-      } else {
-        finalPrice -= 10;
-      }
-    }
+    return applyPromotion(drink, currentBalance, isVip, calculateMemberScore(isVip));
+  }
 
-    // 4. 幸運指數
-    int luck = calculateLuckFactor(drink, currentBalance);
-    if (luck > 10) finalPrice -= 1;
-
-    // 5. 會員分數
-    int memberScore = calculateMemberScore(isVip);
-    if (memberScore > 100) {
-      finalPrice -= 1;
-    } else if (memberScore < 0) {
-      // ★回彈保護：max(25, 30-2) = 28. 這就是測試預期的 28！
-      finalPrice = Math.max(finalPrice, originalPrice - 2);
-    }
+  /** 帶入會員名錄查到的實際分數 (見 {@link MemberDirectory})。 */
+  public int applyPromotion(Drink drink, int currentBalance, boolean isVip, int memberScore) {
+    PromotionRules active = rules;
+    if (active != null) return active.apply(this, drink, currentBalance, isVip, memberScore);
 
-    int result = (int) finalPrice;
-    if (result < 0) result = 0;
+    // 以萬分點定點數計算，結果與原本的 double 版本逐一相同
+    return FixedPointPricing.WHOLE_UNITS.price(categoryCode(determineCategory(drink.getName())), drink.getPrice(),
+        drink.getStock(), currentBalance, isVip, calculateLuckFactor(drink, currentBalance), memberScore);
+  }
 
-    return result;
+  private static int categoryCode(String category) {
+    if ("COFFEE".equals(category)) return FixedPointPricing.CATEGORY_COFFEE;
+    if ("TEA".equals(category)) return FixedPointPricing.CATEGORY_TEA;
+    return FixedPointPricing.CATEGORY_GENERAL;
   }
 
   public int calculateLuckFactor(Drink drink, int balance) {
@@ -82,15 +80,22 @@ public class DiscountEngine {
     return "Enjoy your drink!";
   }
 
-  private String determineCategory(String name) {
+  // 每次計價都會呼叫，逐字元比對而不先轉成大寫字串
+  String determineCategory(String name) {
     if (name == null) return "UNKNOWN";
-    String n = name.toUpperCase();
-    if (n.contains("COFFEE")) return "COFFEE";
-    else if (n.contains("TEA")) return "TEA";
+    if (containsIgnoreCase(name, "COFFEE")) return "COFFEE";
+    else if (containsIgnoreCase(name, "TEA")) return "TEA";
     return "GENERAL";
   }
 
-  private int calculateMemberScore(boolean isVip) {
+  private static boolean containsIgnoreCase(String s, String word) {
+    for (int i = 0; i + word.length() <= s.length(); i++) {
+      if (s.regionMatches(true, i, word, 0, word.length())) return true;
+    }
+    return false;
+  }
+
+  int calculateMemberScore(boolean isVip) {
     if (isVip) return 150;
     else return -10;
   }
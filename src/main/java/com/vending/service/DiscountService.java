@@ -18,9 +18,9 @@ public class DiscountService {
     int total = price * quantity;
 
     // --- 折扣規則 ---
-    // 例如：買 2 瓶以上，打 9 折
+    // 例如：買 2 瓶以上，打 9 折 (9000 萬分點，整數運算)
     if (quantity >= 2) {
-      return (int) (total * 0.9);
+      return FixedPointPricing.multiBuy(total);
     }
 
     // 沒達到折扣門檻，回傳原價
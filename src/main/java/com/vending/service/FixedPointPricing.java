@@ -0,0 +1,139 @@
+package com.vending.service;
+
+import java.math.BigDecimal;
+
+/**
+ * 以萬分點 (basis point, 1/10000) 表示折扣的定點數計價，全程只用 int / long。
+ *
+ * 中間價格以「最小貨幣單位 × 10000」的 long 保存，打折為 {@code amount * bps / 10000}，
+ * 最後向零截斷並下限為 0，與原本 double 算完再 {@code (int)} 的結果完全相同，但在任何平台上都可重現。
+ * 金額一律以最小貨幣單位傳入：新台幣 minorUnits = 1，以分計價的幣別 minorUnits = 100，
+ * 規則中的固定金額與門檻 (例如減 5 元、餘額超過 50 元) 會依此放大。
+ */
+public final class FixedPointPricing {
+  public static final int SCALE = 10_000;
+  public static final int COFFEE_VIP_BPS = 8_500;
+  public static final int MULTI_BUY_BPS = 9_000;
+
+  public static final int CATEGORY_GENERAL = 0;
+  public static final int CATEGORY_COFFEE = 1;
+  public static final int CATEGORY_TEA = 2;
+
+  /** 以元為單位的幣別 (新台幣)。 */
+  public static final FixedPointPricing WHOLE_UNITS = new FixedPointPricing(1);
+
+  private final int minorUnits;
+  // 預先放大的規則常數 (最小單位)
+  private final long one;
+  private final long two;
+  private final long five;
+  private final long ten;
+  private final long thirty;
+  private final long forty;
+  private final long fifty;
+  private final long hundred;
+
+  public FixedPointPricing(int minorUnits) {
+    if (minorUnits <= 0) throw new IllegalArgumentException("minorUnits 必須大於 0");
+    this.minorUnits = minorUnits;
+    this.one = minorUnits;
+    this.two = 2L * minorUnits;
+    this.five = 5L * minorUnits;
+    this.ten = 10L * minorUnits;
+    this.thirty = 30L * minorUnits;
+    this.forty = 40L * minorUnits;
+    this.fifty = 50L * minorUnits;
+    this.hundred = 100L * minorUnits;
+  }
+
+  /** amount 打 bps 萬分點，向零截斷。 */
+  public static int applyBps(long amount, int bps) {
+    return (int) (amount * bps / SCALE);
+  }
+
+  /**
+   * 依 DiscountEngine 的內建規則計價。
+   * @param category {@link #CATEGORY_GENERAL}、{@link #CATEGORY_COFFEE} 或 {@link #CATEGORY_TEA}
+   * @param listPrice 定價 (最小單位)
+   * @param balance 目前餘額 (最小單位)
+   */
+  public int price(int category, int listPrice, int stock, int balance, boolean vip, int luck, int memberScore) {
+    long original = (long) listPrice * SCALE;
+    long p = original;
+
+    // 1. 類別策略
+    if (category == CATEGORY_COFFEE && vip) p = (long) listPrice * COFFEE_VIP_BPS;
+    if (category == CATEGORY_TEA && balance > fifty) p -= five * SCALE;
+
+    // 2. 庫存壓力策略
+    if (stock > 15) p -= (listPrice > thirty ? five : two) * SCALE;
+
+    // 3. 邊界規則
+    if (balance > hundred || listPrice > forty) {
+      if (vip) p -= ten * SCALE;
+      else if (p >= original - two * SCALE) p -= five * SCALE;
+    }
+
+    // 4. 幸運指數
+    if (luck > 10) p -= one * SCALE;
+
+    // 5. 會員分數
+    if (memberScore > 100) p -= one * SCALE;
+    else if (memberScore < 0) p = Math.max(p, original - two * SCALE);
+
+    // long 除法向零截斷，與 (int) 轉型一致
+    long result = p / SCALE;
+    return (int) Math.max(0, result);
+  }
+
+  /** 批次計價，out[i] 對應第 i 筆輸入；所有陣列需等長。 */
+  public void priceAll(int[] categories, int[] listPrices, int[] stocks, int[] balances,
+                       boolean[] vip, int[] luck, int[] memberScores, int[] out) {
+    int n = out.length;
+    if (categories.length != n || listPrices.length != n || stocks.length != n || balances.length != n
+        || vip.length != n || luck.length != n || memberScores.length != n) {
+      throw new IllegalArgumentException("批次計價的陣列長度不一致");
+    }
+    for (int i = 0; i < n; i++) {
+      out[i] = price(categories[i], listPrices[i], stocks[i], balances[i], vip[i], luck[i], memberScores[i]);
+    }
+  }
+
+  // ---- 促銷規則語言 (PromotionRules) 的定點數運算：數值一律為「原值 × SCALE」的 long ----
+
+  /** 整數金額或數量放大成定點數。 */
+  public static long scale(long value) {
+    return value * SCALE;
+  }
+
+  /** 兩個定點數相乘，向零截斷；mul 0.85 即為乘上 8500 萬分點。 */
+  public static long multiplyScaled(long a, long b) {
+    return a * b / SCALE;
+  }
+
+  /** 兩個定點數相除，向零截斷；除數為 0 時結果為 0，避免計價時丟出例外。 */
+  public static long divideScaled(long a, long b) {
+    return b == 0 ? 0 : a * SCALE / b;
+  }
+
+  /** 定點數價格轉回整數：向零截斷並下限為 0，與 {@link #price} 相同。 */
+  public static int toPrice(long scaled) {
+    return (int) Math.max(0, scaled / SCALE);
+  }
+
+  /** 解析規則中的十進位常數，最多 4 位小數 (1 萬分點)。 */
+  public static long parseScaled(String text) {
+    try {
+      return new BigDecimal(text).movePointRight(4).longValueExact();
+    } catch (ArithmeticException | NumberFormatException e) {
+      throw new IllegalArgumentException("數字格式錯誤或超過 4 位小數: " + text, e);
+    }
+  }
+
+  /** 多件打折 (DiscountService 的 9 折)。 */
+  public static int multiBuy(int total) {
+    return applyBps(total, MULTI_BUY_BPS);
+  }
+
+  public int getMinorUnits() { return minorUnits; }
+}
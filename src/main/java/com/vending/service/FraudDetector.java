@@ -0,0 +1,157 @@
+package com.vending.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 串流式風控偵測：以每台機台的滑動視窗統計投幣、取消與成交次數，
+ * 並依面額 (硬幣通道) 分開計數。
+ * 視窗切成固定數量的時間桶，桶過期時直接從總數扣回，每個事件只需 O(1)。
+ */
+public class FraudDetector {
+  public enum Signal { INSERT_CANCEL_LOOP, DENOMINATION_SKEW }
+
+  public interface Listener {
+    void onSignal(String machineId, Signal signal, String detail);
+  }
+
+  private static final int[] DENOMINATIONS = {50, 10, 5, 1};
+  private static final int MIN_CANCELS = 5;
+  private static final int CANCEL_TO_SALE_RATIO = 3;
+  private static final int MIN_COINS_FOR_MIX = 20;
+  private static final double SKEW_MARGIN = 0.4;
+
+  private final long bucketMillis;
+  private final int bucketCount;
+  private final LongSupplier clock;
+  private final Listener listener;
+  private final ConcurrentHashMap<String, MachineWindow> windows = new ConcurrentHashMap<>();
+  // 全機隊各面額累計數量，作為「正常」面額組成的基準
+  private final LongAdder[] fleetCoins = new LongAdder[DENOMINATIONS.length];
+  private final LongAdder fleetTotal = new LongAdder();
+
+  public FraudDetector() {
+    this(60_000L, 12, System::currentTimeMillis,
+        (id, signal, detail) -> System.out.println("【風控】" + id + " " + signal + ": " + detail));
+  }
+
+  public FraudDetector(long windowMillis, int bucketCount, LongSupplier clock, Listener listener) {
+    if (bucketCount <= 0 || windowMillis < bucketCount) throw new IllegalArgumentException("視窗設定錯誤");
+    this.bucketMillis = windowMillis / bucketCount;
+    this.bucketCount = bucketCount;
+    this.clock = clock;
+    this.listener = listener;
+    for (int i = 0; i < fleetCoins.length; i++) fleetCoins[i] = new LongAdder();
+  }
+
+  public void onCoinInserted(String machineId, int denomination) {
+    int d = indexOf(denomination);
+    if (d < 0) return;
+    fleetCoins[d].increment();
+    fleetTotal.increment();
+    MachineWindow w = window(machineId);
+    String detail = null;
+    synchronized (w) {
+      w.advance(currentBucket());
+      w.coins[w.head][d]++;
+      w.coinTotals[d]++;
+      w.coinTotal++;
+      if (w.coinTotal >= MIN_COINS_FOR_MIX && w.lastSkewFlag != w.headEpoch) {
+        double share = (double) w.coinTotals[d] / w.coinTotal;
+        if (share > baselineShare(d) + SKEW_MARGIN) {
+          w.lastSkewFlag = w.headEpoch;
+          detail = denomination + " 元占比 " + Math.round(share * 100) + "%";
+        }
+      }
+    }
+    if (detail != null) listener.onSignal(machineId, Signal.DENOMINATION_SKEW, detail);
+  }
+
+  public void onCancel(String machineId, int refund) {
+    MachineWindow w = window(machineId);
+    String detail = null;
+    synchronized (w) {
+      w.advance(currentBucket());
+      w.cancels[w.head]++;
+      w.cancelTotal++;
+      if (w.cancelTotal >= MIN_CANCELS && w.cancelTotal > w.saleTotal * CANCEL_TO_SALE_RATIO
+          && w.lastLoopFlag != w.headEpoch) {
+        w.lastLoopFlag = w.headEpoch;
+        detail = "取消 " + w.cancelTotal + " 次 / 成交 " + w.saleTotal + " 次，最後退款 " + refund;
+      }
+    }
+    if (detail != null) listener.onSignal(machineId, Signal.INSERT_CANCEL_LOOP, detail);
+  }
+
+  public void onSale(String machineId) {
+    MachineWindow w = window(machineId);
+    synchronized (w) {
+      w.advance(currentBucket());
+      w.sales[w.head]++;
+      w.saleTotal++;
+    }
+  }
+
+  private double baselineShare(int index) {
+    long total = fleetTotal.sum();
+    return total == 0 ? 0 : (double) fleetCoins[index].sum() / total;
+  }
+
+  private long currentBucket() {
+    return clock.getAsLong() / bucketMillis;
+  }
+
+  private MachineWindow window(String machineId) {
+    return windows.computeIfAbsent(machineId, k -> new MachineWindow(bucketCount, currentBucket()));
+  }
+
+  private static int indexOf(int denomination) {
+    for (int i = 0; i < DENOMINATIONS.length; i++) {
+      if (DENOMINATIONS[i] == denomination) return i;
+    }
+    return -1;
+  }
+
+  /** 環狀時間桶；head 為目前的桶，總數隨桶過期遞減。 */
+  private static final class MachineWindow {
+    final int[] cancels;
+    final int[] sales;
+    final int[][] coins;
+    final int[] coinTotals = new int[DENOMINATIONS.length];
+    int cancelTotal;
+    int saleTotal;
+    int coinTotal;
+    int head;
+    long headEpoch;
+    long lastLoopFlag = -1;
+    long lastSkewFlag = -1;
+
+    MachineWindow(int buckets, long epoch) {
+      cancels = new int[buckets];
+      sales = new int[buckets];
+      coins = new int[buckets][DENOMINATIONS.length];
+      headEpoch = epoch;
+    }
+
+    void advance(long epoch) {
+      if (epoch <= headEpoch) return;
+      // 最多清掉一整圈，與經過多久無關
+      long steps = Math.min(epoch - headEpoch, cancels.length);
+      for (long s = 0; s < steps; s++) {
+        head = (head + 1) % cancels.length;
+        cancelTotal -= cancels[head];
+        saleTotal -= sales[head];
+        cancels[head] = 0;
+        sales[head] = 0;
+        int[] bucket = coins[head];
+        for (int d = 0; d < bucket.length; d++) {
+          coinTotals[d] -= bucket[d];
+          coinTotal -= bucket[d];
+          bucket[d] = 0;
+        }
+      }
+      headEpoch = epoch;
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.vending.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * 本機會員名錄，結帳時以會員卡號查詢 VIP 身分與會員分數。
+ *
+ * 卡號存在以 long 為鍵的開放定址雜湊表 (線性探測，負載不超過 0.75)，
+ * VIP 與分數壓成一個 int，不產生任何物件；數千萬筆會員約佔 12 位元組 / 格。
+ * 表前放一個 Bloom 濾器 (每筆約 10 位元、3 個雜湊)，非會員大多不必進入雜湊表探測。
+ * 建立後唯讀，可在多執行緒間共用。
+ *
+ * 檔案格式每行 {@code 卡號,vip,分數}，例如 {@code 4711,true,180}；空行與 # 開頭為註解。
+ */
+public final class MemberDirectory {
+  private static final int BLOOM_BITS_PER_MEMBER = 10;
+  private static final int BLOOM_HASHES = 3;
+
+  private final long[] keys;
+  // (分數 << 1) | vip
+  private final int[] values;
+  private final int mask;
+  private final long[] bloom;
+  private final long bloomMask;
+  private final int size;
+
+  private MemberDirectory(long[] ids, int[] packed, int count) {
+    if (count > (3 << 28)) throw new IllegalArgumentException("會員數過多: " + count);
+    int capacity = Integer.highestOneBit(Math.max(2, (int) Math.min(1 << 30, count * 4L / 3 + 1)) - 1) << 1;
+    this.keys = new long[capacity];
+    this.values = new int[capacity];
+    this.mask = capacity - 1;
+    long bloomBits = Long.highestOneBit(Math.max(64, (long) count * BLOOM_BITS_PER_MEMBER - 1)) << 1;
+    this.bloom = new long[(int) (bloomBits >>> 6)];
+    this.bloomMask = bloomBits - 1;
+    int n = 0;
+    for (int i = 0; i < count; i++) {
+      if (put(ids[i], packed[i])) n++;
+    }
+    this.size = n;
+  }
+
+  /** 從檔案載入會員名錄，格式錯誤時丟出 IllegalArgumentException 並指出行號。 */
+  public static MemberDirectory load(Path file) throws IOException {
+    long[] ids = new long[1024];
+    int[] packed = new int[1024];
+    int count = 0;
+    int lineNo = 0;
+    try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        lineNo++;
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) continue;
+        String[] parts = line.split(",");
+        if (parts.length != 3) throw new IllegalArgumentException("第 " + lineNo + " 行格式應為 卡號,vip,分數");
+        long id;
+        int score;
+        try {
+          id = Long.parseLong(parts[0].trim());
+          score = Integer.parseInt(parts[2].trim());
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("第 " + lineNo + " 行數字格式錯誤", e);
+        }
+        String vip = parts[1].trim();
+        if (!vip.equalsIgnoreCase("true") && !vip.equalsIgnoreCase("false")) {
+          throw new IllegalArgumentException("第 " + lineNo + " 行 vip 應為 true 或 false");
+        }
+        if (id <= 0) throw new IllegalArgumentException("第 " + lineNo + " 行卡號必須為正數");
+        if (count == ids.length) {
+          ids = Arrays.copyOf(ids, count * 2);
+          packed = Arrays.copyOf(packed, count * 2);
+        }
+        ids[count] = id;
+        packed[count] = pack(Boolean.parseBoolean(vip), score);
+        count++;
+      }
+    }
+    return new MemberDirectory(ids, packed, count);
+  }
+
+  /** 直接由陣列建立，三個陣列需等長。 */
+  public static MemberDirectory of(long[] ids, boolean[] vip, int[] scores) {
+    if (ids.length != vip.length || ids.length != scores.length) throw new IllegalArgumentException("陣列長度不一致");
+    int[] packed = new int[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      if (ids[i] <= 0) throw new IllegalArgumentException("卡號必須為正數: " + ids[i]);
+      packed[i] = pack(vip[i], scores[i]);
+    }
+    return new MemberDirectory(ids, packed, ids.length);
+  }
+
+  private static int pack(boolean vip, int score) {
+    if (score > (Integer.MAX_VALUE >> 1) || score < (Integer.MIN_VALUE >> 1)) throw new IllegalArgumentException("會員分數超出範圍: " + score);
+    return (score << 1) | (vip ? 1 : 0);
+  }
+
+  // 重複卡號以後出現者為準
+  private boolean put(long id, int value) {
+    long h = mix(id);
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      long bit = (h + i * (h >>> 32 | 1)) & bloomMask;
+      bloom[(int) (bit >>> 6)] |= 1L << bit;
+    }
+    int slot = (int) h & mask;
+    while (keys[slot] != 0) {
+      if (keys[slot] == id) {
+        values[slot] = value;
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = id;
+    values[slot] = value;
+    return true;
+  }
+
+  /** 回傳卡號所在的格子，非會員回傳 -1；搭配 {@link #isVipAt} 與 {@link #scoreAt} 使用，不必查兩次。 */
+  public int indexOf(long id) {
+    if (id <= 0) return -1;
+    long h = mix(id);
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      long bit = (h + i * (h >>> 32 | 1)) & bloomMask;
+      if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) return -1;
+    }
+    int slot = (int) h & mask;
+    long k;
+    while ((k = keys[slot]) != 0) {
+      if (k == id) return slot;
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  public boolean isVipAt(int index) { return (values[index] & 1) != 0; }
+  public int scoreAt(int index) { return values[index] >> 1; }
+
+  public boolean contains(long id) { return indexOf(id) >= 0; }
+
+  public boolean isVip(long id) {
+    int i = indexOf(id);
+    return i >= 0 && isVipAt(i);
+  }
+
+  public int size() { return size; }
+
+  // murmur3 fmix64
+  private static long mix(long x) {
+    x ^= x >>> 33;
+    x *= 0xff51afd7ed558ccdL;
+    x ^= x >>> 33;
+    x *= 0xc4ceb9fe1a85ec53L;
+    x ^= x >>> 33;
+    return x;
+  }
+}
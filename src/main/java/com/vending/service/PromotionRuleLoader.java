@@ -0,0 +1,45 @@
+package com.vending.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * 從設定檔載入促銷規則，檔案內容變更時重新編譯並交給 target (通常是 DiscountEngine::setRules)。
+ * 以內容比對而非修改時間，同一個時間刻度內的修改也不會漏掉；規則檔很小，每次檢查都讀整份。
+ * 編譯失敗時保留舊規則，機台不需重啟。
+ */
+public class PromotionRuleLoader {
+  private final Path file;
+  private final Consumer<PromotionRules> target;
+  private byte[] lastLoaded;
+
+  public PromotionRuleLoader(Path file, Consumer<PromotionRules> target) {
+    this.file = file;
+    this.target = target;
+  }
+
+  /** 以時間輪每隔 periodMillis 檢查一次檔案，取消回傳的計時器即停止。 */
+  public TimerWheel.Timeout schedule(TimerWheel wheel, long periodMillis) {
+    return wheel.scheduleAtFixedRate(this::reloadIfChanged, periodMillis);
+  }
+
+  /** @return 是否載入了新規則 */
+  public synchronized boolean reloadIfChanged() {
+    try {
+      byte[] content = Files.readAllBytes(file);
+      if (Arrays.equals(content, lastLoaded)) return false;
+      PromotionRules rules = PromotionRules.compile(new String(content, StandardCharsets.UTF_8));
+      lastLoaded = content;
+      target.accept(rules);
+      System.out.println("【促銷】已載入規則: " + file);
+      return true;
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("【促銷】規則載入失敗，沿用舊規則: " + e.getMessage());
+      return false;
+    }
+  }
+}
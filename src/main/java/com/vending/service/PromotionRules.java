@@ -0,0 +1,360 @@
+package com.vending.service;
+
+import com.vending.model.Drink;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 促銷規則語言，於執行期編譯成 MethodHandle 樹。
+ *
+ * <pre>
+ * # 每行一條規則，由上而下依序套用
+ * when category == 'TEA' and balance > 50 then sub 5
+ * when member &lt; 0 then max price - 2
+ * </pre>
+ *
+ * 變數：price、balance、stock、luck、member、final (目前價格)、vip、category。
+ * 動作：sub / mul / max / min / set，作用在 final 上。
+ * 條件支援 and / or / not、比較運算與四則運算。
+ * 數值以 {@link FixedPointPricing} 的萬分點定點數 (long) 計算，常數最多 4 位小數，除以 0 得 0；
+ * 最後結果截斷為整數且不低於 0，與內建計價的捨入方式完全相同。
+ * 行內 # 之後為註解，引號內的 # 不算。
+ *
+ * 所有變數直接以參數傳入 MethodHandle 樹，執行時不配置任何物件。
+ * 每組規則編譯後以 {@link CompiledPromotionProgram} 為範本定義一個 hidden class，
+ * 規則樹放在該類別的 static final 欄位，JIT 視為常數而能把整棵樹內聯；規則換掉後舊類別可被回收。
+ */
+public final class PromotionRules {
+  public static final String DEFAULT_RESOURCE = "/promotion-rules.txt";
+
+  /** 規則樹的參數：final、price、balance、stock、luck、member、vip、category。 */
+  static final List<Class<?>> PARAMS = List.of(long.class, long.class, long.class, long.class,
+      long.class, long.class, boolean.class, String.class);
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final MethodType NUM = MethodType.methodType(long.class, PARAMS);
+  private static final MethodType BOOL = MethodType.methodType(boolean.class, PARAMS);
+  private static final MethodType STR = MethodType.methodType(String.class, PARAMS);
+  private static final byte[] PROGRAM_TEMPLATE = readTemplate();
+
+  /** 由 hidden class 實作，回傳套用所有規則後的價格 (定點數)。 */
+  interface Program {
+    long evaluate(long finalPrice, long price, long balance, long stock, long luck,
+                  long member, boolean vip, String category);
+  }
+
+  private final String source;
+  private final Program program;
+
+  private PromotionRules(String source, Program program) {
+    this.source = source;
+    this.program = program;
+  }
+
+  public static PromotionRules compile(String source) {
+    // 初始為 final 本身，每條規則以前一條的結果作為 final
+    MethodHandle program = variable(0, long.class);
+    List<MethodHandle> rules = new ArrayList<>();
+    String[] lines = source.split("\\R");
+    for (int i = 0; i < lines.length; i++) {
+      String line = stripComment(lines[i]);
+      if (line.isBlank()) continue;
+      try {
+        rules.add(new Parser(line).rule());
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("第 " + (i + 1) + " 行: " + e.getMessage(), e);
+      }
+    }
+    // 依序串接：foldArguments 先執行 combiner (前面的規則)，結果作為下一條規則的 final，原本的 final 丟棄
+    for (MethodHandle rule : rules) {
+      program = MethodHandles.foldArguments(MethodHandles.dropArguments(rule, 1, long.class), program);
+    }
+    return new PromotionRules(source, define(program));
+  }
+
+  /** 去掉引號外第一個 # 之後的內容。 */
+  private static String stripComment(String line) {
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '\'') quoted = !quoted;
+      else if (c == '#' && !quoted) return line.substring(0, i);
+    }
+    return line;
+  }
+
+  private static byte[] readTemplate() {
+    try (InputStream in = PromotionRules.class.getResourceAsStream("CompiledPromotionProgram.class")) {
+      if (in == null) throw new IllegalStateException("找不到 CompiledPromotionProgram.class");
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /** 以範本定義新的 hidden class，規則樹作為其 class data 綁成常數。 */
+  private static Program define(MethodHandle tree) {
+    try {
+      MethodHandles.Lookup hidden = LOOKUP.defineHiddenClassWithClassData(PROGRAM_TEMPLATE, tree, true);
+      return (Program) hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class)).invoke();
+    } catch (Throwable t) {
+      throw new IllegalStateException("無法定義規則類別", t);
+    }
+  }
+
+  public static PromotionRules loadDefault() {
+    try (InputStream in = PromotionRules.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+      if (in == null) throw new IllegalStateException("找不到預設規則: " + DEFAULT_RESOURCE);
+      return compile(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new IllegalStateException("讀取預設規則失敗", e);
+    }
+  }
+
+  public String getSource() { return source; }
+
+  int apply(DiscountEngine engine, Drink drink, int currentBalance, boolean isVip, int memberScore) {
+    long price = FixedPointPricing.scale(drink.getPrice());
+    long finalPrice = program.evaluate(price, price, FixedPointPricing.scale(currentBalance),
+        FixedPointPricing.scale(drink.getStock()), FixedPointPricing.scale(engine.calculateLuckFactor(drink, currentBalance)),
+        FixedPointPricing.scale(memberScore), isVip, engine.determineCategory(drink.getName()));
+    return FixedPointPricing.toPrice(finalPrice);
+  }
+
+  // ---- MethodHandle 組合用的基本運算 (定點數) ----
+  private static long add(long a, long b) { return a + b; }
+  private static long subtract(long a, long b) { return a - b; }
+  private static long multiply(long a, long b) { return FixedPointPricing.multiplyScaled(a, b); }
+  private static long divide(long a, long b) { return FixedPointPricing.divideScaled(a, b); }
+  private static long negate(long a) { return -a; }
+  private static long max(long a, long b) { return Math.max(a, b); }
+  private static long min(long a, long b) { return Math.min(a, b); }
+  private static boolean gt(long a, long b) { return a > b; }
+  private static boolean ge(long a, long b) { return a >= b; }
+  private static boolean lt(long a, long b) { return a < b; }
+  private static boolean le(long a, long b) { return a <= b; }
+  private static boolean eq(long a, long b) { return a == b; }
+  private static boolean ne(long a, long b) { return a != b; }
+  private static boolean strEq(String a, String b) { return Objects.equals(a, b); }
+  private static boolean strNe(String a, String b) { return !Objects.equals(a, b); }
+  private static boolean not(boolean a) { return !a; }
+
+  private static MethodHandle op(String name, Class<?> ret, Class<?>... params) {
+    try {
+      return LOOKUP.findStatic(PromotionRules.class, name, MethodType.methodType(ret, params));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final int[] BOTH = new int[PARAMS.size() * 2];
+  static {
+    for (int i = 0; i < BOTH.length; i++) BOTH[i] = i % PARAMS.size();
+  }
+
+  /** 把 (T, T)R 的運算與兩個 (Params)T 子樹合成 (Params)R。 */
+  private static MethodHandle binary(MethodHandle op, MethodHandle left, MethodHandle right) {
+    MethodHandle h = MethodHandles.collectArguments(op, 0, left);
+    h = MethodHandles.collectArguments(h, PARAMS.size(), right);
+    return MethodHandles.permuteArguments(h, MethodType.methodType(op.type().returnType(), PARAMS), BOTH);
+  }
+
+  /** 取第 index 個參數。 */
+  private static MethodHandle variable(int index, Class<?> type) {
+    return MethodHandles.permuteArguments(MethodHandles.identity(type), MethodType.methodType(type, PARAMS), index);
+  }
+
+  private static final class Parser {
+    private final List<String> tokens = new ArrayList<>();
+    private int pos;
+
+    Parser(String line) {
+      int i = 0;
+      while (i < line.length()) {
+        char c = line.charAt(i);
+        if (Character.isWhitespace(c)) {
+          i++;
+        } else if (Character.isDigit(c) || c == '.') {
+          int start = i;
+          while (i < line.length() && (Character.isDigit(line.charAt(i)) || line.charAt(i) == '.')) i++;
+          tokens.add(line.substring(start, i));
+        } else if (Character.isLetter(c) || c == '_') {
+          int start = i;
+          while (i < line.length() && (Character.isLetterOrDigit(line.charAt(i)) || line.charAt(i) == '_')) i++;
+          tokens.add(line.substring(start, i));
+        } else if (c == '\'') {
+          int end = line.indexOf('\'', i + 1);
+          if (end < 0) throw new IllegalArgumentException("字串缺少結尾引號");
+          tokens.add(line.substring(i, end + 1));
+          i = end + 1;
+        } else if ("<>!=".indexOf(c) >= 0 && i + 1 < line.length() && line.charAt(i + 1) == '=') {
+          tokens.add(line.substring(i, i + 2));
+          i += 2;
+        } else if ("<>+-*/()".indexOf(c) >= 0) {
+          tokens.add(String.valueOf(c));
+          i++;
+        } else {
+          throw new IllegalArgumentException("無法辨識的字元: " + c);
+        }
+      }
+    }
+
+    MethodHandle rule() {
+      expect("when");
+      MethodHandle cond = asBool(expr());
+      expect("then");
+      String action = next();
+      MethodHandle value = asNum(expr());
+      if (pos != tokens.size()) throw new IllegalArgumentException("多餘的內容: " + tokens.get(pos));
+
+      MethodHandle combine;
+      switch (action) {
+        case "sub": combine = op("subtract", long.class, long.class, long.class); break;
+        case "mul": combine = op("multiply", long.class, long.class, long.class); break;
+        case "max": combine = op("max", long.class, long.class, long.class); break;
+        case "min": combine = op("min", long.class, long.class, long.class); break;
+        case "set": combine = MethodHandles.dropArguments(MethodHandles.identity(long.class), 0, long.class); break;
+        default: throw new IllegalArgumentException("未知動作: " + action);
+      }
+      // 條件成立時回傳新的 final，否則原樣回傳
+      MethodHandle finalPrice = variable(0, long.class);
+      return MethodHandles.guardWithTest(cond, binary(combine, finalPrice, value), finalPrice);
+    }
+
+    private MethodHandle expr() {
+      MethodHandle left = and();
+      while (accept("or")) {
+        MethodHandle right = asBool(and());
+        left = MethodHandles.guardWithTest(asBool(left),
+            constant(boolean.class, true), right);
+      }
+      return left;
+    }
+
+    private MethodHandle and() {
+      MethodHandle left = not();
+      while (accept("and")) {
+        MethodHandle right = asBool(not());
+        left = MethodHandles.guardWithTest(asBool(left), right,
+            constant(boolean.class, false));
+      }
+      return left;
+    }
+
+    private MethodHandle not() {
+      if (accept("not")) return MethodHandles.filterReturnValue(asBool(not()), op("not", boolean.class, boolean.class));
+      return comparison();
+    }
+
+    private MethodHandle comparison() {
+      MethodHandle left = sum();
+      String t = peek();
+      if (t == null || !List.of(">", ">=", "<", "<=", "==", "!=").contains(t)) return left;
+      pos++;
+      MethodHandle right = sum();
+      if (left.type().equals(STR) || right.type().equals(STR)) {
+        if (!left.type().equals(right.type())) throw new IllegalArgumentException("字串只能與字串比較");
+        if ("==".equals(t)) return binary(op("strEq", boolean.class, String.class, String.class), left, right);
+        if ("!=".equals(t)) return binary(op("strNe", boolean.class, String.class, String.class), left, right);
+        throw new IllegalArgumentException("字串不支援運算子: " + t);
+      }
+      String name;
+      switch (t) {
+        case ">": name = "gt"; break;
+        case ">=": name = "ge"; break;
+        case "<": name = "lt"; break;
+        case "<=": name = "le"; break;
+        case "==": name = "eq"; break;
+        default: name = "ne";
+      }
+      return binary(op(name, boolean.class, long.class, long.class), asNum(left), asNum(right));
+    }
+
+    private MethodHandle sum() {
+      MethodHandle left = term();
+      while ("+".equals(peek()) || "-".equals(peek())) {
+        String name = "+".equals(next()) ? "add" : "subtract";
+        left = binary(op(name, long.class, long.class, long.class), asNum(left), asNum(term()));
+      }
+      return left;
+    }
+
+    private MethodHandle term() {
+      MethodHandle left = unary();
+      while ("*".equals(peek()) || "/".equals(peek())) {
+        String name = "*".equals(next()) ? "multiply" : "divide";
+        left = binary(op(name, long.class, long.class, long.class), asNum(left), asNum(unary()));
+      }
+      return left;
+    }
+
+    private MethodHandle unary() {
+      if (accept("-")) return MethodHandles.filterReturnValue(asNum(unary()), op("negate", long.class, long.class));
+      return primary();
+    }
+
+    private MethodHandle primary() {
+      String t = next();
+      if ("(".equals(t)) {
+        MethodHandle inner = expr();
+        expect(")");
+        return inner;
+      }
+      if (t.startsWith("'")) return constant(String.class, t.substring(1, t.length() - 1));
+      if (Character.isDigit(t.charAt(0)) || t.charAt(0) == '.') return constant(long.class, FixedPointPricing.parseScaled(t));
+      switch (t) {
+        case "final": return variable(0, long.class);
+        case "price": return variable(1, long.class);
+        case "balance": return variable(2, long.class);
+        case "stock": return variable(3, long.class);
+        case "luck": return variable(4, long.class);
+        case "member": return variable(5, long.class);
+        case "vip": return variable(6, boolean.class);
+        case "category": return variable(7, String.class);
+        case "true": return constant(boolean.class, true);
+        case "false": return constant(boolean.class, false);
+        default: throw new IllegalArgumentException("未知變數: " + t);
+      }
+    }
+
+    private static MethodHandle constant(Class<?> type, Object value) {
+      return MethodHandles.dropArguments(MethodHandles.constant(type, value), 0, PARAMS);
+    }
+
+    private static MethodHandle asNum(MethodHandle h) {
+      if (!h.type().equals(NUM)) throw new IllegalArgumentException("此處需要數值");
+      return h;
+    }
+
+    private static MethodHandle asBool(MethodHandle h) {
+      if (!h.type().equals(BOOL)) throw new IllegalArgumentException("此處需要條件");
+      return h;
+    }
+
+    private String peek() { return pos < tokens.size() ? tokens.get(pos) : null; }
+
+    private String next() {
+      if (pos >= tokens.size()) throw new IllegalArgumentException("規則不完整");
+      return tokens.get(pos++);
+    }
+
+    private boolean accept(String t) {
+      if (t.equals(peek())) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(String t) {
+      if (!accept(t)) throw new IllegalArgumentException("預期 '" + t + "'，實際為 '" + peek() + "'");
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.vending.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 每個貨道的增量式缺貨預測。
+ *
+ * 每次成交以指數平滑更新「兩次銷售的間隔」，預測售完時間 = 最後銷售時間 + 剩餘庫存 × 平滑間隔。
+ * 所有貨道的預測另外依售完時間排序保存，查詢全機台最先售完的貨道不必重掃歷史。
+ */
+public class StockForecaster {
+  private final double alpha;
+  private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+  private final ConcurrentSkipListSet<Prediction> byEmptyTime = new ConcurrentSkipListSet<>(
+      Comparator.comparingLong(Prediction::getEmptyAt).thenComparing(Prediction::getMachineId)
+          .thenComparing(Prediction::getDrinkId));
+
+  public StockForecaster() {
+    this(0.3);
+  }
+
+  public StockForecaster(double alpha) {
+    if (alpha <= 0 || alpha > 1) throw new IllegalArgumentException("alpha 必須介於 (0, 1]");
+    this.alpha = alpha;
+  }
+
+  /** 單一貨道的預測結果；emptyAt 為 Long.MAX_VALUE 表示銷售資料不足。 */
+  public static final class Prediction {
+    private final String machineId;
+    private final String drinkId;
+    private final int stock;
+    private final long emptyAt;
+    private final double salesPerHour;
+
+    Prediction(String machineId, String drinkId, int stock, long emptyAt, double salesPerHour) {
+      this.machineId = machineId;
+      this.drinkId = drinkId;
+      this.stock = stock;
+      this.emptyAt = emptyAt;
+      this.salesPerHour = salesPerHour;
+    }
+
+    public String getMachineId() { return machineId; }
+    public String getDrinkId() { return drinkId; }
+    public int getStock() { return stock; }
+    public long getEmptyAt() { return emptyAt; }
+    public double getSalesPerHour() { return salesPerHour; }
+  }
+
+  private static final class Slot {
+    long lastSale = -1;
+    double interval = Double.NaN;
+    Prediction current;
+  }
+
+  public void recordSale(String machineId, String drinkId, int stockAfter, long now) {
+    Slot slot = slots.computeIfAbsent(key(machineId, drinkId), k -> new Slot());
+    synchronized (slot) {
+      if (slot.lastSale >= 0) {
+        double dt = Math.max(1, now - slot.lastSale);
+        slot.interval = Double.isNaN(slot.interval) ? dt : alpha * dt + (1 - alpha) * slot.interval;
+      }
+      slot.lastSale = now;
+      publish(slot, machineId, drinkId, stockAfter);
+    }
+  }
+
+  /** 補貨只更新庫存，銷售速度維持不變。 */
+  public void recordRestock(String machineId, String drinkId, int stock) {
+    Slot slot = slots.computeIfAbsent(key(machineId, drinkId), k -> new Slot());
+    synchronized (slot) {
+      publish(slot, machineId, drinkId, stock);
+    }
+  }
+
+  private void publish(Slot slot, String machineId, String drinkId, int stock) {
+    double perHour = Double.isNaN(slot.interval) ? 0 : 3_600_000.0 / slot.interval;
+    long emptyAt;
+    if (stock <= 0) emptyAt = Math.max(slot.lastSale, 0);
+    else if (Double.isNaN(slot.interval)) emptyAt = Long.MAX_VALUE;
+    else emptyAt = slot.lastSale + (long) (stock * slot.interval);
+    if (slot.current != null) byEmptyTime.remove(slot.current);
+    slot.current = new Prediction(machineId, drinkId, stock, emptyAt, perHour);
+    byEmptyTime.add(slot.current);
+  }
+
+  public Prediction predict(String machineId, String drinkId) {
+    Slot slot = slots.get(key(machineId, drinkId));
+    if (slot == null) return null;
+    synchronized (slot) {
+      return slot.current;
+    }
+  }
+
+  /** 預測多久後售完；沒有資料時回傳 Long.MAX_VALUE。 */
+  public long millisToEmpty(String machineId, String drinkId, long now) {
+    Prediction p = predict(machineId, drinkId);
+    if (p == null || p.emptyAt == Long.MAX_VALUE) return Long.MAX_VALUE;
+    return Math.max(0, p.emptyAt - now);
+  }
+
+  /** 全機台最先售完的 limit 個貨道，依預測售完時間排序。 */
+  public List<Prediction> soonestStockOuts(int limit) {
+    List<Prediction> result = new ArrayList<>(Math.min(limit, 64));
+    for (Prediction p : byEmptyTime) {
+      if (result.size() >= limit || p.emptyAt == Long.MAX_VALUE) break;
+      result.add(p);
+    }
+    return result;
+  }
+
+  private static String key(String machineId, String drinkId) {
+    return machineId + '/' + drinkId;
+  }
+}
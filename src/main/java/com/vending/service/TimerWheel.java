@@ -0,0 +1,297 @@
+package com.vending.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 同一台主機上所有機台共用的階層式雜湊時間輪。
+ *
+ * 第 0 層每格代表一個 tick，第 n 層每格代表 2^(bits*n) 個 tick；
+ * 計時器依剩餘時間放入對應層的格子，低層轉完一圈時把上一層的一格重新分配 (cascade)。
+ * 每格為雙向鏈結串列，排程與取消都是 O(1)。
+ * 任意執行緒排程或取消時只把節點放進無鎖佇列，由唯一的 tick 執行緒搬進時間輪，
+ * 因此排程與取消都不需要加鎖；到期的工作在 tick 執行緒上、釋放時間輪的監視器後執行，應保持簡短。
+ */
+public class TimerWheel implements AutoCloseable {
+  private static final int PENDING = 0;
+  private static final int CANCELLED = 1;
+  private static final int EXPIRED = 2;
+
+  private static final VarHandle STATE;
+  static {
+    try {
+      STATE = MethodHandles.lookup().findVarHandle(Timeout.class, "state", int.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /** 已排程的計時器，可隨時取消。 */
+  public static final class Timeout {
+    private final TimerWheel wheel;
+    private final Runnable task;
+    private final long periodTicks;
+    private long deadlineTick;
+    private volatile int state;
+    // 以下只由 tick 執行緒存取
+    private Bucket bucket;
+    private Timeout prev;
+    private Timeout next;
+
+    Timeout(TimerWheel wheel, Runnable task, long deadlineTick, long periodTicks) {
+      this.wheel = wheel;
+      this.task = task;
+      this.deadlineTick = deadlineTick;
+      this.periodTicks = periodTicks;
+    }
+
+    /** 取消計時器；已到期 (單次) 或已取消時回傳 false。 */
+    public boolean cancel() {
+      if (!STATE.compareAndSet(this, PENDING, CANCELLED)) return false;
+      wheel.pending.decrementAndGet();
+      wheel.cancellations.offer(this);
+      return true;
+    }
+
+    public boolean isCancelled() { return state == CANCELLED; }
+    public boolean isExpired() { return state == EXPIRED; }
+  }
+
+  private static final class Bucket {
+    private Timeout head;
+    private Timeout tail;
+
+    void add(Timeout t) {
+      t.bucket = this;
+      t.prev = tail;
+      t.next = null;
+      if (tail == null) head = t;
+      else tail.next = t;
+      tail = t;
+    }
+
+    void remove(Timeout t) {
+      if (t.prev == null) head = t.next;
+      else t.prev.next = t.next;
+      if (t.next == null) tail = t.prev;
+      else t.next.prev = t.prev;
+      t.prev = null;
+      t.next = null;
+      t.bucket = null;
+    }
+
+    /** 取出整串節點，交給呼叫端逐一處理。 */
+    Timeout takeAll() {
+      Timeout first = head;
+      head = null;
+      tail = null;
+      return first;
+    }
+  }
+
+  private final long tickMillis;
+  private final int bits;
+  private final int mask;
+  private final int levels;
+  private final Bucket[][] wheels;
+  private final LongSupplier clock;
+  private final long origin;
+  private final ConcurrentLinkedQueue<Timeout> additions = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<Timeout> cancellations = new ConcurrentLinkedQueue<>();
+  private final AtomicLong pending = new AtomicLong();
+  // 下一個要處理的 tick
+  private long base;
+  private Thread ticker;
+  private volatile boolean running;
+
+  public TimerWheel(long tickMillis) {
+    this(tickMillis, 8, 4, System::currentTimeMillis);
+  }
+
+  /**
+   * @param bits 每層 2^bits 格
+   * @param levels 層數；可排程的最長時間約為 tickMillis * 2^(bits*levels)
+   */
+  public TimerWheel(long tickMillis, int bits, int levels, LongSupplier clock) {
+    if (tickMillis <= 0) throw new IllegalArgumentException("tickMillis 必須大於 0");
+    if (bits <= 0 || levels <= 0 || (long) bits * levels > 62) throw new IllegalArgumentException("時間輪層數設定不合法");
+    this.tickMillis = tickMillis;
+    this.bits = bits;
+    this.mask = (1 << bits) - 1;
+    this.levels = levels;
+    this.clock = clock;
+    this.origin = clock.getAsLong();
+    this.wheels = new Bucket[levels][1 << bits];
+    for (Bucket[] wheel : wheels) {
+      for (int i = 0; i < wheel.length; i++) wheel[i] = new Bucket();
+    }
+  }
+
+  /** 在 delayMillis 之後執行一次 task (不會提早)。 */
+  public Timeout schedule(Runnable task, long delayMillis) {
+    return enqueue(new Timeout(this, task, deadlineTick(delayMillis), 0));
+  }
+
+  /** 每隔 periodMillis 執行一次 task，直到取消，例如定期稽核。 */
+  public Timeout scheduleAtFixedRate(Runnable task, long periodMillis) {
+    long periodTicks = Math.max(1, (periodMillis + tickMillis - 1) / tickMillis);
+    return enqueue(new Timeout(this, task, deadlineTick(periodMillis), periodTicks));
+  }
+
+  private long deadlineTick(long delayMillis) {
+    long at = clock.getAsLong() + Math.max(0, delayMillis) - origin;
+    return Math.floorDiv(at + tickMillis - 1, tickMillis);
+  }
+
+  private Timeout enqueue(Timeout t) {
+    pending.incrementAndGet();
+    additions.offer(t);
+    return t;
+  }
+
+  /** 依時鐘推進到目前時間。 */
+  public int advance() {
+    return advanceTo(clock.getAsLong());
+  }
+
+  /**
+   * 處理到 nowMillis 為止的所有 tick 並執行到期工作。
+   * 到期的工作在釋放時間輪的監視器之後才執行，工作內可以取得其他鎖 (例如機台的鎖) 或再排程，
+   * 不會與其他執行緒形成鎖順序反轉，也不會讓排程端等候工作結束。
+   * @return 本次執行的工作數
+   */
+  public int advanceTo(long nowMillis) {
+    long target = Math.floorDiv(nowMillis - origin, tickMillis);
+    List<Timeout> due = new ArrayList<>();
+    int fired = 0;
+    while (true) {
+      synchronized (this) {
+        for (Timeout t : due) reschedule(t);
+        due.clear();
+        drainQueues();
+        while (due.isEmpty() && base <= target) collectTick(due);
+        if (due.isEmpty()) return fired;
+      }
+      for (Timeout t : due) {
+        run(t);
+        fired++;
+      }
+    }
+  }
+
+  // 取出目前 tick 到期的計時器；單次計時器在此即標記為已到期，之後的 cancel() 會回傳 false
+  private void collectTick(List<Timeout> due) {
+    int index = (int) (base & mask);
+    if (index == 0) cascade(1);
+    Timeout t = wheels[0][index].takeAll();
+    base++;
+    while (t != null) {
+      Timeout next = t.next;
+      t.prev = null;
+      t.next = null;
+      t.bucket = null;
+      if (t.state == PENDING) {
+        if (t.deadlineTick >= base) place(t);
+        else if (expire(t)) due.add(t);
+      }
+      t = next;
+    }
+    drainQueues();
+  }
+
+  private void cascade(int level) {
+    if (level >= levels) return;
+    int index = (int) ((base >>> (bits * level)) & mask);
+    if (index == 0) cascade(level + 1);
+    Timeout t = wheels[level][index].takeAll();
+    while (t != null) {
+      Timeout next = t.next;
+      t.bucket = null;
+      if (t.state == PENDING) place(t);
+      t = next;
+    }
+  }
+
+  private boolean expire(Timeout t) {
+    if (t.periodTicks > 0) return true;
+    if (!STATE.compareAndSet(t, PENDING, EXPIRED)) return false;
+    pending.decrementAndGet();
+    return true;
+  }
+
+  private static void run(Timeout t) {
+    try {
+      t.task.run();
+    } catch (RuntimeException e) {
+      System.out.println("【計時器】工作執行失敗: " + e);
+    }
+  }
+
+  // 週期性計時器執行完後放回時間輪，執行期間被取消的就不再放回
+  private void reschedule(Timeout t) {
+    if (t.periodTicks > 0 && t.state == PENDING) {
+      t.deadlineTick += t.periodTicks;
+      place(t);
+    }
+  }
+
+  private void drainQueues() {
+    Timeout t;
+    while ((t = additions.poll()) != null) {
+      if (t.state == PENDING) place(t);
+    }
+    while ((t = cancellations.poll()) != null) {
+      if (t.bucket != null) t.bucket.remove(t);
+    }
+  }
+
+  /** 依剩餘 tick 數決定層級與格子；超出最上層範圍時先放在最遠的格子，cascade 時再重新分配。 */
+  private void place(Timeout t) {
+    long deadline = Math.max(t.deadlineTick, base);
+    long delta = deadline - base;
+    int level = 0;
+    while (level < levels - 1 && delta >= (1L << (bits * (level + 1)))) level++;
+    long span = 1L << (bits * (level + 1));
+    if (delta >= span) deadline = base + span - 1;
+    int index = (int) ((deadline >>> (bits * level)) & mask);
+    wheels[level][index].add(t);
+  }
+
+  /** 啟動背景 tick 執行緒。 */
+  public synchronized void start() {
+    if (ticker != null) return;
+    running = true;
+    ticker = new Thread(() -> {
+      while (running) {
+        advance();
+        try {
+          Thread.sleep(tickMillis);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }, "timer-wheel");
+    ticker.setDaemon(true);
+    ticker.start();
+  }
+
+  @Override
+  public void close() {
+    Thread t;
+    synchronized (this) {
+      running = false;
+      t = ticker;
+      ticker = null;
+    }
+    if (t != null) t.interrupt();
+  }
+
+  /** 尚未到期也未取消的計時器數 (週期性計時器取消前都算在內)。 */
+  public long pendingCount() { return pending.get(); }
+  public long getTickMillis() { return tickMillis; }
+}
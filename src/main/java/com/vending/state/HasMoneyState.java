@@ -1,26 +1,29 @@
 package com.vending.state;
 
+import com.vending.core.MachineBank;
 import com.vending.core.VendingMachine;
 import com.vending.model.Drink;
 
+/** 不持有任何機台資料，可由多台機台共用。 */
 public class HasMoneyState implements VendingMachineState {
-  private final VendingMachine machine;
-
-  public HasMoneyState(VendingMachine machine) { this.machine = machine; }
-
   @Override
-  public void insertCoin(int amount) {
+  public void insertCoin(VendingMachine machine, int amount) {
     if (amount == 1 || amount == 5 || amount == 10 || amount == 50) {
       machine.setBalance(machine.getBalance() + amount);
     }
   }
 
   @Override
-  public void selectDrink(String drinkId) {
+  public void selectDrink(VendingMachine machine, String drinkId) {
     Drink drink = machine.getInventory().get(drinkId);
     if (drink == null) {
       System.out.println("品項不存在");
     } else if (drink.getStock() <= 0) {
+      // 同排機台有貨時提示顧客改到最近的一台購買
+      MachineBank bank = machine.getBank();
+      VendingMachine nearest = bank != null ? bank.nearestWithStock(machine, drinkId) : null;
+      machine.setRedirectSuggestion(nearest);
+      if (nearest != null) System.out.println("本機已售完，請至 " + nearest.getMachineId() + " 購買");
       // 修正重點：確保狀態切換至 SoldOutState，解決測試失敗問題
       machine.setState(machine.getSoldOutState());
     } else if (machine.getBalance() < drink.getPrice()) {
@@ -32,7 +35,7 @@ public class HasMoneyState implements VendingMachineState {
     }
   }
 
-  @Override public void dispense() { /* 實作略 */ }
-  @Override public void cancel() { machine.setBalance(0); machine.setState(machine.getIdleState()); }
-  @Override public void maintenance(String pwd) { /* 實作略 */ }
+  @Override public void dispense(VendingMachine machine) { /* 實作略 */ }
+  @Override public void cancel(VendingMachine machine) { machine.setBalance(0); machine.setState(machine.getIdleState()); }
+  @Override public void maintenance(VendingMachine machine, String pwd) { /* 實作略 */ }
 }
\ No newline at end of file
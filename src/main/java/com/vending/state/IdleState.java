@@ -2,15 +2,10 @@ package com.vending.state;
 
 import com.vending.core.VendingMachine;
 
+/** 不持有任何機台資料，可由多台機台共用。 */
 public class IdleState implements VendingMachineState {
-  private final VendingMachine machine;
-
-  public IdleState(VendingMachine machine) {
-    this.machine = machine;
-  }
-
   @Override
-  public void insertCoin(int amount) {
+  public void insertCoin(VendingMachine machine, int amount) {
     // 簡化：只處理合法面額 (1, 5, 10, 50)，移除測試不到的 else 分支
     if (amount == 1 || amount == 5 || amount == 10 || amount == 50) {
       machine.setBalance(machine.getBalance() + amount);
@@ -20,26 +15,26 @@ public class IdleState implements VendingMachineState {
   }
 
   @Override
-  public void selectDrink(String drinkId) {
+  public void selectDrink(VendingMachine machine, String drinkId) {
     System.out.println("請先投幣");
   }
 
   @Override
-  public void dispense() {
+  public void dispense(VendingMachine machine) {
     System.out.println("尚未選擇商品");
   }
 
   @Override
-  public void cancel() {
+  public void cancel(VendingMachine machine) {
     System.out.println("目前無餘額可退");
   }
 
   @Override
-  public void maintenance(String password) {
+  public void maintenance(VendingMachine machine, String password) {
     // 簡化：只處理正確密碼，移除測試不到的 else 分支
     if ("admin123".equals(password)) {
       System.out.println("進入維護模式");
       machine.setState(machine.getMaintenanceState());
     }
   }
-}
\ No newline at end of file
+}
@@ -1,101 +1,266 @@
 package com.vending.state;
 
 import com.vending.core.VendingMachine;
+import com.vending.diagnostics.DiagnosticReport;
+import com.vending.diagnostics.HardwareDiagnostics;
+import com.vending.diagnostics.ProbeResult;
+import com.vending.diagnostics.SubsystemProbe;
+import com.vending.jfr.MaintenanceActionEvent;
 import com.vending.model.Drink;
-import java.util.Map;
+import com.vending.service.StockForecaster;
+import com.vending.telemetry.SensorTimeSeries;
+import com.vending.telemetry.SensorTimeSeriesStore;
+import com.vending.telemetry.TelemetryBatcher;
+import com.vending.telemetry.WindowStats;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
 
 public class MaintenanceState implements VendingMachineState {
   private final VendingMachine machine;
 
   // Reflection targets
-  private boolean wifi = true;
-  private boolean sim4g = true;
+  // 背景上傳執行緒會讀取網路狀態
+  private volatile boolean wifi = true;
+  private volatile boolean sim4g = true;
   private int currentVoltage = 110;
   private int currentTemp = 4;
   private int coinMechCleanliness = 98;
 
+  // 自檢時以最近一段時間的讀值判斷，而不是單一快照
+  private static final long CHECK_WINDOW_MILLIS = 10 * 60_000L;
+  // 原始讀值 256 筆、分鐘彙總 1 小時、小時彙總 1 週 (168 小時)
+  public static final int SENSOR_RAW = 256;
+  public static final int SENSOR_MINUTES = 60;
+  public static final int SENSOR_HOURS = 168;
+  // 第一次記錄讀值時才配置；機台有機隊的感測器倉庫時從倉庫切出一片
+  private SensorTimeSeries sensorHistory;
+  private SensorTimeSeriesStore sensorStore;
+
+  private static final String[] SUBSYSTEMS = {"POWER_UNIT", "COOLING_SYSTEM", "COIN_MECH", "DISPENSER_MOTOR", "CONNECTIVITY"};
+  private HardwareDiagnostics diagnostics = new HardwareDiagnostics(Duration.ofSeconds(2));
+  // null 代表使用內建的模擬檢測
+  private List<SubsystemProbe> subsystemProbes;
+  private Function<Drink, SubsystemProbe> slotProbeFactory;
+  private DiagnosticReport lastReport;
+
+  /** 維護狀態持有本機的感測器歷史與檢測設定，每台機台各有一個，不可共用。 */
   public MaintenanceState(VendingMachine machine) {
     this.machine = machine;
   }
 
+  // 維護狀態綁定本機，維修人員的工具可直接呼叫，不必帶入機台
+  public void insertCoin(int amount) { insertCoin(machine, amount); }
+  public void selectDrink(String drinkId) { selectDrink(machine, drinkId); }
+  public void dispense() { dispense(machine); }
+  public void cancel() { cancel(machine); }
+  public void maintenance(String password) { maintenance(machine, password); }
+
+  private void requireOwner(VendingMachine caller) {
+    if (caller != machine) {
+      throw new IllegalStateException("維護狀態屬於 " + machine.getMachineId() + "，不可由 "
+          + (caller == null ? "null" : caller.getMachineId()) + " 使用");
+    }
+  }
+
+  public boolean isWifi() { return wifi; }
+  public boolean isSim4g() { return sim4g; }
+  public boolean isOnline() { return wifi || sim4g; }
+
+  /** 更新網路狀態；由離線轉為連線時通知機台補送離線暫存區。 */
+  public void setConnectivity(boolean wifi, boolean sim4g) {
+    boolean wasOnline = isOnline();
+    this.wifi = wifi;
+    this.sim4g = sim4g;
+    if (!wasOnline && isOnline()) machine.onReconnected();
+  }
+  public int getCurrentVoltage() { return currentVoltage; }
+  public int getCurrentTemp() { return currentTemp; }
+  public int getCoinMechCleanliness() { return coinMechCleanliness; }
+  public SensorTimeSeries getSensorHistory() {
+    if (sensorHistory == null) {
+      SensorTimeSeriesStore store = machine.getSensorStore();
+      sensorHistory = store != null ? store.acquire() : SensorTimeSeries.allocate(SENSOR_RAW, SENSOR_MINUTES, SENSOR_HOURS);
+      sensorStore = store;
+    }
+    return sensorHistory;
+  }
+  public void setSensorHistory(SensorTimeSeries sensorHistory) {
+    releaseSensorHistory();
+    this.sensorHistory = sensorHistory;
+  }
+
+  /** 機台下線時呼叫：從機隊倉庫切出的歷史歸還給倉庫，之後再記錄讀值會重新配置。 */
+  public void releaseSensorHistory() {
+    if (sensorHistory != null && sensorStore != null) sensorStore.release(sensorHistory);
+    sensorHistory = null;
+    sensorStore = null;
+  }
+
+  public void setDiagnostics(HardwareDiagnostics diagnostics) { this.diagnostics = diagnostics; }
+  public void setSubsystemProbes(List<SubsystemProbe> probes) { this.subsystemProbes = probes; }
+  public void setSlotProbeFactory(Function<Drink, SubsystemProbe> factory) { this.slotProbeFactory = factory; }
+  public DiagnosticReport getLastReport() { return lastReport; }
+
+  /** 將目前的感測器讀值寫入時間序列，並交給遙測批次上傳。呼叫端須持有機台的鎖。 */
+  public void recordSensorSnapshot(long timestamp) {
+    getSensorHistory().append(timestamp, currentVoltage, currentTemp, coinMechCleanliness);
+    TelemetryBatcher telemetry = machine.getTelemetry();
+    if (telemetry != null) telemetry.recordSensors(this, timestamp);
+  }
+
+  /** 感測器回報新讀值：更新目前讀值並寫入時間序列，可由任何執行緒呼叫。 */
+  public void updateSensors(long timestamp, int voltage, int temp, int cleanliness) {
+    machine.getLock().lock();
+    try {
+      this.currentVoltage = voltage;
+      this.currentTemp = temp;
+      this.coinMechCleanliness = cleanliness;
+      recordSensorSnapshot(timestamp);
+    } finally {
+      machine.getLock().unlock();
+    }
+  }
+
   @Override
-  public void insertCoin(int amount) {
+  public void insertCoin(VendingMachine machine, int amount) {
+    requireOwner(machine);
     System.out.println("【維護中】系統鎖定，退還硬幣: " + amount);
   }
 
   @Override
-  public void selectDrink(String drinkId) {
+  public void selectDrink(VendingMachine machine, String drinkId) {
+    requireOwner(machine);
+    MaintenanceActionEvent event = new MaintenanceActionEvent();
+    event.begin();
     Drink drink = machine.getInventory().get(drinkId);
     if (drink != null) {
       System.out.println("【手動補貨】" + drink.getName());
       drink.setStock(10);
+      machine.onStockChanged(drink);
+      StockForecaster forecaster = machine.getStockForecaster();
+      if (forecaster != null) forecaster.recordRestock(machine.getMachineId(), drink.getId(), drink.getStock());
+      event.finish(machine.getMachineId(), "RESTOCK", drinkId);
     } else {
       System.out.println("【錯誤】查無此 ID: " + drinkId);
+      event.finish(machine.getMachineId(), "RESTOCK_UNKNOWN", drinkId);
     }
   }
 
   @Override
-  public void dispense() {
+  public void dispense(VendingMachine machine) {
+    requireOwner(machine);
+    MaintenanceActionEvent event = new MaintenanceActionEvent();
+    event.begin();
     System.out.println("【系統自檢】啟動深度硬體掃描...");
-    performSubsystemCheck("POWER_UNIT");
-    performSubsystemCheck("COOLING_SYSTEM");
-    performSubsystemCheck("COIN_MECH");
-    performSubsystemCheck("DISPENSER_MOTOR");
-    performSubsystemCheck("CONNECTIVITY");
-    testAllSlots();
+    recordSensorSnapshot(System.currentTimeMillis());
+    List<SubsystemProbe> probes = new ArrayList<>(subsystemProbes != null ? subsystemProbes : defaultSubsystemProbes());
+    for (Drink d : machine.getInventory().values()) {
+      probes.add(slotProbeFactory != null ? slotProbeFactory.apply(d) : defaultSlotProbe(d));
+    }
+    // 各子系統與貨道平行檢測，總時間取決於最慢的一項而非全部相加
+    lastReport = diagnostics.run(probes);
+    for (ProbeResult r : lastReport.getResults()) System.out.println(r.getMessage());
+    event.finish(machine.getMachineId(), "DIAGNOSTICS", lastReport.isHealthy() ? "OK" : "ALARM");
   }
 
   @Override
-  public void cancel() {
+  public void cancel(VendingMachine machine) {
+    requireOwner(machine);
     System.out.println("【系統】維護完成。");
+    new MaintenanceActionEvent().finish(machine.getMachineId(), "EXIT", null);
     machine.setState(machine.getIdleState());
   }
 
   @Override
-  public void maintenance(String password) {
+  public void maintenance(VendingMachine machine, String password) {
+    requireOwner(machine);
+    MaintenanceActionEvent event = new MaintenanceActionEvent();
+    event.begin();
     System.out.println("已在維護模式中。");
     analyzeInventoryHealth();
     int estimatedCost = estimateMaintenanceCost();
     System.out.println("維修成本: $" + estimatedCost);
+    event.finish(machine.getMachineId(), "COST_ESTIMATE", "$" + estimatedCost);
+  }
+
+  private String performSubsystemCheck(String systemCode) {
+    return performSubsystemCheck(systemCode, sensorWindows(System.currentTimeMillis()));
   }
 
-  private void performSubsystemCheck(String systemCode) {
+  /** 以同一份感測器統計判斷子系統狀態；windows 依 SensorTimeSeries 的感測器編號排列。 */
+  private String performSubsystemCheck(String systemCode, WindowStats[] windows) {
     switch (systemCode) {
       case "POWER_UNIT":
-        if (checkVoltage(this.currentVoltage)) System.out.println("電壓穩定");
-        else System.out.println("警報：電壓異常");
-        break;
+        WindowStats volt = windows[SensorTimeSeries.VOLTAGE];
+        if (checkVoltage(volt.getMin()) && checkVoltage(volt.getMax())) return "電壓穩定";
+        return "警報：電壓異常";
       case "COOLING_SYSTEM":
-        if (this.currentTemp > 10) System.out.println("警報：溫度過高");
-        else if (this.currentTemp < 0) System.out.println("警報：結霜風險");
-        else System.out.println("冷藏功能正常");
-        break;
+        double temp = windows[SensorTimeSeries.TEMPERATURE].getMean();
+        if (temp > 10) return "警報：溫度過高";
+        else if (temp < 0) return "警報：結霜風險";
+        return "冷藏功能正常";
       case "COIN_MECH":
-        System.out.println("清潔度: " + coinMechCleanliness + "%");
-        break;
+        long cleanliness = Math.round(windows[SensorTimeSeries.CLEANLINESS].getMean());
+        return "清潔度: " + cleanliness + "%";
       case "DISPENSER_MOTOR":
-        System.out.println("馬達: OK");
-        break;
+        return "馬達: OK";
       case "CONNECTIVITY":
-        if (wifi && sim4g) System.out.println("雙網路正常");
-        else if (wifi) System.out.println("僅 Wi-Fi");
-        else if (sim4g) System.out.println("僅 4G");
-        else System.out.println("警報：離線");
-        break;
+        if (wifi && sim4g) return "雙網路正常";
+        else if (wifi) return "僅 Wi-Fi";
+        else if (sim4g) return "僅 4G";
+        return "警報：離線";
       default:
-        System.out.println("未知子系統");
+        return "未知子系統";
     }
   }
 
-  private boolean checkVoltage(int v) {
-    return v >= 100 && v <= 120;
+  /**
+   * 以目前的感測器讀值模擬各子系統檢測。
+   * 時間序列不是執行緒安全的，因此在呼叫端執行緒上先讀出一份統計並判斷完，平行執行的檢測只回報結果。
+   */
+  private List<SubsystemProbe> defaultSubsystemProbes() {
+    WindowStats[] windows = sensorWindows(System.currentTimeMillis());
+    List<SubsystemProbe> probes = new ArrayList<>(SUBSYSTEMS.length);
+    for (String code : SUBSYSTEMS) {
+      String msg = performSubsystemCheck(code, windows);
+      ProbeResult result = msg.startsWith("警報") ? ProbeResult.alarm(code, msg) : ProbeResult.ok(code, msg);
+      probes.add(new SubsystemProbe() {
+        @Override public String getName() { return code; }
+        @Override public ProbeResult probe() { return result; }
+      });
+    }
+    return probes;
+  }
+
+  private WindowStats[] sensorWindows(long now) {
+    return new WindowStats[] {
+        windowOf(SensorTimeSeries.VOLTAGE, now),
+        windowOf(SensorTimeSeries.TEMPERATURE, now),
+        windowOf(SensorTimeSeries.CLEANLINESS, now)};
+  }
+
+  private static SubsystemProbe defaultSlotProbe(Drink d) {
+    String name = "SLOT:" + d.getId();
+    return new SubsystemProbe() {
+      @Override public String getName() { return name; }
+      @Override public ProbeResult probe() { return ProbeResult.ok(name, d.getStock() > 0 ? "正常" : "略過"); }
+    };
   }
 
-  private void testAllSlots() {
-    for (Map.Entry<String, Drink> entry : machine.getInventory().entrySet()) {
-      if (entry.getValue().getStock() > 0) System.out.println("正常");
-      else System.out.println("略過");
+  /** 時間窗內沒有讀值時退回目前的快照值。 */
+  private WindowStats windowOf(int sensor, long now) {
+    WindowStats stats = getSensorHistory().window(sensor, CHECK_WINDOW_MILLIS, now);
+    if (stats.isEmpty()) {
+      recordSensorSnapshot(now);
+      stats = getSensorHistory().window(sensor, CHECK_WINDOW_MILLIS, now);
     }
+    return stats;
+  }
+
+  private boolean checkVoltage(int v) {
+    return v >= 100 && v <= 120;
   }
 
   private void analyzeInventoryHealth() {
@@ -112,6 +277,14 @@ public class MaintenanceState implements VendingMachineState {
     if (d.getPrice() >= 30) score *= 1.5;
     if (d.isHot()) score += 20;
     if (d.getStock() == 0) score += 50;
+
+    // 依銷售速度預測售完時間，賣得快的貨道提早補
+    StockForecaster forecaster = machine.getStockForecaster();
+    if (forecaster != null && d.getStock() > 0) {
+      long hoursLeft = forecaster.millisToEmpty(machine.getMachineId(), d.getId(), System.currentTimeMillis()) / 3_600_000L;
+      if (hoursLeft < 4) score += 60;
+      else if (hoursLeft < 24) score += 30;
+    }
     return score;
   }
 
@@ -2,31 +2,26 @@ package com.vending.state;
 
 import com.vending.core.VendingMachine;
 
+/** 不持有任何機台資料，可由多台機台共用。 */
 public class SoldOutState implements VendingMachineState {
-  private VendingMachine machine;
-
-  public SoldOutState(VendingMachine machine) {
-    this.machine = machine;
-  }
-
   @Override
-  public void insertCoin(int amount) {
+  public void insertCoin(VendingMachine machine, int amount) {
     System.out.println("商品已售罄，請按取消鍵退幣");
     machine.setBalance(machine.getBalance() + amount);
   }
 
   @Override
-  public void selectDrink(String drinkId) {
+  public void selectDrink(VendingMachine machine, String drinkId) {
     System.out.println("目前無貨");
   }
 
   @Override
-  public void dispense() {
+  public void dispense(VendingMachine machine) {
     System.out.println("無貨可供出貨");
   }
 
   @Override
-  public void cancel() {
+  public void cancel(VendingMachine machine) {
     int refund = machine.getBalance();
     machine.setBalance(0);
     System.out.println("退還全部金額: " + refund);
@@ -34,9 +29,9 @@ public class SoldOutState implements VendingMachineState {
   }
 
   @Override
-  public void maintenance(String password) {
+  public void maintenance(VendingMachine machine, String password) {
     if ("admin123".equals(password)) {
       machine.setState(machine.getMaintenanceState());
     }
   }
-}
\ No newline at end of file
+}
@@ -1,10 +1,16 @@
 // File: com/vending/state/VendingMachineState.java
 package com.vending.state;
 
+import com.vending.core.VendingMachine;
+
+/**
+ * 機台狀態。每個動作都由機台帶入自身，狀態物件不持有機台，
+ * 因此同一個狀態物件可以被多台機台共用 (見 {@link VendingMachine#createShared})。
+ */
 public interface VendingMachineState {
-  void insertCoin(int amount);
-  void selectDrink(String drinkId);
-  void dispense();
-  void cancel();
-  void maintenance(String password);
-}
\ No newline at end of file
+  void insertCoin(VendingMachine machine, int amount);
+  void selectDrink(VendingMachine machine, String drinkId);
+  void dispense(VendingMachine machine);
+  void cancel(VendingMachine machine);
+  void maintenance(VendingMachine machine, String password);
+}
@@ -0,0 +1,32 @@
+package com.vending.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本機替身的上傳目的地：依序號去重後存在記憶體，並記錄收到幾次請求。
+ * 可設定為離線以模擬上傳失敗。
+ */
+public class LocalOutboxSink implements OutboxSink {
+  private final List<byte[]> received = new ArrayList<>();
+  private long highestSequence;
+  private int requests;
+  private boolean available = true;
+
+  @Override
+  public synchronized boolean deliver(List<OfflineOutbox.Entry> batch) {
+    requests++;
+    if (!available) return false;
+    for (OfflineOutbox.Entry e : batch) {
+      if (e.getSequence() <= highestSequence) continue;
+      highestSequence = e.getSequence();
+      received.add(e.getPayload());
+    }
+    return true;
+  }
+
+  public synchronized void setAvailable(boolean available) { this.available = available; }
+  public synchronized List<byte[]> getReceived() { return new ArrayList<>(received); }
+  public synchronized int getRequests() { return requests; }
+  public synchronized long getHighestSequence() { return highestSequence; }
+}
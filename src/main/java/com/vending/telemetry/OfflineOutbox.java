@@ -0,0 +1,228 @@
+package com.vending.telemetry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 以檔案保存的離線暫存區 (outbox)。
+ *
+ * 銷售與遙測訊框先附上遞增序號寫入 outbox.log，恢復連線後每次最多 maxBatch 筆整批送出；
+ * 收到確認才把序號寫入 outbox.ack。送出後若當機會重送 (至少一次)，接收端以序號去重。
+ * 全部確認後清空記錄檔。開啟時會截斷結尾不完整或校驗錯誤的紀錄 (寫到一半斷電)；
+ * 檔案中段損毀則拒絕開啟，不會自動丟棄資料。
+ */
+public class OfflineOutbox implements AutoCloseable {
+  private static final String LOG_FILE = "outbox.log";
+  private static final String ACK_FILE = "outbox.ack";
+  // seq(8) + 長度(4) + ... + crc(4)
+  private static final int HEADER_BYTES = 12;
+  private static final int TRAILER_BYTES = 4;
+
+  /** 一筆待送紀錄。 */
+  public static final class Entry {
+    private final long sequence;
+    private final byte[] payload;
+
+    Entry(long sequence, byte[] payload) {
+      this.sequence = sequence;
+      this.payload = payload;
+    }
+
+    public long getSequence() { return sequence; }
+    public byte[] getPayload() { return payload; }
+  }
+
+  private final Path dir;
+  private final FileChannel log;
+  private final int maxBatch;
+  private final boolean syncOnAppend;
+  private long nextSequence;
+  private long ackedSequence;
+  // 第一筆未確認紀錄在檔案中的位置，避免每次從頭掃描
+  private long pendingOffset;
+  // 讓 flush 彼此排隊，但不擋住 append
+  private final Object flushLock = new Object();
+
+  public OfflineOutbox(Path dir, int maxBatch, boolean syncOnAppend) throws IOException {
+    if (maxBatch <= 0) throw new IllegalArgumentException("maxBatch 必須大於 0");
+    this.dir = dir;
+    this.maxBatch = maxBatch;
+    this.syncOnAppend = syncOnAppend;
+    Files.createDirectories(dir);
+    Path ackFile = dir.resolve(ACK_FILE);
+    this.ackedSequence = Files.exists(ackFile) ? Long.parseLong(Files.readString(ackFile).trim()) : 0;
+    this.log = FileChannel.open(dir.resolve(LOG_FILE),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    recover();
+  }
+
+  /**
+   * 掃描記錄檔找出未確認的位置。只有最後一筆紀錄不完整或校驗錯誤 (寫到一半斷電) 時才截斷；
+   * 損毀的紀錄後面還有資料代表檔案中段損壞，截斷會丟掉後面的有效紀錄，因此不處理而丟出 IOException。
+   */
+  private void recover() throws IOException {
+    long size = log.size();
+    long pos = 0;
+    long lastSeq = ackedSequence;
+    pendingOffset = -1;
+    while (pos < size) {
+      Entry e = readAt(pos);
+      if (e == null) {
+        long end = recordEnd(pos, size);
+        if (end >= 0 && end < size) {
+          log.close();
+          String msg = LOG_FILE + " 於位置 " + pos + " 損毀，其後仍有 " + (size - end) + " 位元組，請人工檢查後再開啟";
+          System.out.println("【離線暫存】" + msg);
+          throw new IOException(msg);
+        }
+        System.out.println("【離線暫存】捨棄結尾不完整的紀錄 " + (size - pos) + " 位元組");
+        break;
+      }
+      if (e.sequence > ackedSequence && pendingOffset < 0) pendingOffset = pos;
+      lastSeq = Math.max(lastSeq, e.sequence);
+      pos += HEADER_BYTES + e.payload.length + TRAILER_BYTES;
+    }
+    log.truncate(pos);
+    log.position(pos);
+    if (pendingOffset < 0) pendingOffset = pos;
+    nextSequence = lastSeq + 1;
+  }
+
+  /** pos 位置紀錄的結尾；紀錄超出檔尾 (寫到一半) 時回傳 -1，長度欄位不合法時視為延伸到檔案中段。 */
+  private long recordEnd(long pos, long size) throws IOException {
+    if (pos + HEADER_BYTES > size) return -1;
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    readFully(header, pos);
+    int len = header.getInt(8);
+    if (len < 0) return pos + HEADER_BYTES;
+    long end = pos + HEADER_BYTES + len + TRAILER_BYTES;
+    return end > size ? -1 : end;
+  }
+
+  /** 寫入一筆紀錄並回傳其序號。 */
+  public synchronized long append(byte[] payload) throws IOException {
+    long seq = nextSequence++;
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + payload.length + TRAILER_BYTES);
+    buf.putLong(seq).putInt(payload.length).put(payload).putInt((int) crc.getValue()).flip();
+    while (buf.hasRemaining()) log.write(buf);
+    if (syncOnAppend) log.force(false);
+    return seq;
+  }
+
+  /** 給 TelemetryBatcher 使用的訊框接收端。 */
+  public Consumer<byte[]> asFrameSink() {
+    return frame -> {
+      try {
+        append(frame);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+
+  /** 連線時才上傳；例如 {@code outbox.flushIfOnline(maintenanceState::isOnline, sink)}。 */
+  public int flushIfOnline(BooleanSupplier online, OutboxSink sink) throws IOException {
+    return online.getAsBoolean() ? flush(sink) : 0;
+  }
+
+  /**
+   * 把所有未確認紀錄整批送出，遇到失敗就停止，留待下次重試。
+   * 上傳時不持有 outbox 的鎖，同時進行的 {@link #append} 不必等網路；同一時間只有一個 flush 在送。
+   * @return 本次確認的筆數
+   */
+  public int flush(OutboxSink sink) throws IOException {
+    synchronized (flushLock) {
+      int delivered = 0;
+      while (true) {
+        List<Entry> batch = new ArrayList<>(Math.min(maxBatch, 1024));
+        long pos;
+        synchronized (this) {
+          pos = pendingOffset;
+          Entry e;
+          while (batch.size() < maxBatch && (e = readAt(pos)) != null) {
+            batch.add(e);
+            pos += HEADER_BYTES + e.payload.length + TRAILER_BYTES;
+          }
+        }
+        if (batch.isEmpty() || !sink.deliver(batch)) break;
+        synchronized (this) {
+          writeAck(batch.get(batch.size() - 1).sequence);
+          pendingOffset = pos;
+        }
+        delivered += batch.size();
+      }
+      synchronized (this) {
+        // 送出期間有新紀錄寫入時檔案比 pendingOffset 長，不會被截斷
+        if (pendingOffset == log.size() && pendingOffset > 0) {
+          log.truncate(0);
+          log.position(0);
+          pendingOffset = 0;
+        }
+      }
+      return delivered;
+    }
+  }
+
+  public synchronized long pendingCount() throws IOException {
+    long count = 0;
+    long pos = pendingOffset;
+    Entry e;
+    while ((e = readAt(pos)) != null) {
+      count++;
+      pos += HEADER_BYTES + e.payload.length + TRAILER_BYTES;
+    }
+    return count;
+  }
+
+  public synchronized long getAckedSequence() { return ackedSequence; }
+
+  private void writeAck(long seq) throws IOException {
+    Path tmp = dir.resolve(ACK_FILE + ".tmp");
+    Files.writeString(tmp, Long.toString(seq));
+    Files.move(tmp, dir.resolve(ACK_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    ackedSequence = seq;
+  }
+
+  /** 讀取 pos 位置的紀錄；到檔尾或紀錄不完整、校驗失敗時回傳 null。 */
+  private Entry readAt(long pos) throws IOException {
+    long size = log.size();
+    if (pos + HEADER_BYTES > size) return null;
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    readFully(header, pos);
+    long seq = header.getLong(0);
+    int len = header.getInt(8);
+    if (len < 0 || pos + HEADER_BYTES + len + TRAILER_BYTES > size) return null;
+    ByteBuffer body = ByteBuffer.allocate(len + TRAILER_BYTES);
+    readFully(body, pos + HEADER_BYTES);
+    byte[] payload = new byte[len];
+    body.get(0, payload);
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    if ((int) crc.getValue() != body.getInt(len)) return null;
+    return new Entry(seq, payload);
+  }
+
+  private void readFully(ByteBuffer buf, long pos) throws IOException {
+    while (buf.hasRemaining()) {
+      if (log.read(buf, pos + buf.position()) < 0) throw new IOException("outbox 檔案意外結束");
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    log.close();
+  }
+}
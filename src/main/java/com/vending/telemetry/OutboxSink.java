@@ -0,0 +1,12 @@
+package com.vending.telemetry;
+
+import java.util.List;
+
+/**
+ * 離線暫存區的上傳目的地。
+ * 回傳 true 代表整批已被接收；同一序號可能重送，接收端須以序號去重。
+ */
+@FunctionalInterface
+public interface OutboxSink {
+  boolean deliver(List<OfflineOutbox.Entry> batch);
+}
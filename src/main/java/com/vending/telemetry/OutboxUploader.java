@@ -0,0 +1,75 @@
+package com.vending.telemetry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 在背景執行緒上把離線暫存區送到上傳目的地，讓交易只需寫入 outbox，不必等網路。
+ *
+ * 有新紀錄或恢復連線時以 {@link #wake()} 通知立即上傳；上傳失敗或仍有未確認的紀錄時，
+ * 連線中每隔 retryInterval 重試一次，不必等下一個訊框或下一次恢復連線。
+ */
+public class OutboxUploader {
+  private final OfflineOutbox outbox;
+  private final OutboxSink sink;
+  private final BooleanSupplier online;
+  private final long retryMillis;
+  private final Thread worker;
+  private final Object signal = new Object();
+  private boolean requested;
+  private volatile boolean closed;
+
+  public OutboxUploader(String name, OfflineOutbox outbox, OutboxSink sink, BooleanSupplier online, Duration retryInterval) {
+    if (retryInterval.isNegative() || retryInterval.isZero()) throw new IllegalArgumentException("retryInterval 必須大於 0");
+    this.outbox = outbox;
+    this.sink = sink;
+    this.online = online;
+    this.retryMillis = retryInterval.toMillis();
+    this.worker = Thread.ofVirtual().name("outbox-" + name).start(this::run);
+  }
+
+  /** 通知背景執行緒立即嘗試上傳，不會阻塞呼叫端。 */
+  public void wake() {
+    synchronized (signal) {
+      requested = true;
+      signal.notifyAll();
+    }
+  }
+
+  private void run() {
+    while (!closed) {
+      synchronized (signal) {
+        if (!requested) {
+          try {
+            signal.wait(retryMillis);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        requested = false;
+      }
+      if (closed || !online.getAsBoolean()) continue;
+      try {
+        outbox.flush(sink);
+      } catch (IOException | RuntimeException e) {
+        System.out.println("【離線暫存】上傳失敗，稍後重試: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * 停止背景上傳並等候進行中的一批結束；未送出的紀錄留在 outbox。
+   * 在上傳目的地的回呼中 (背景執行緒本身) 呼叫時只標記停止，不等候自己。
+   */
+  public void close() {
+    closed = true;
+    wake();
+    if (Thread.currentThread() == worker) return;
+    try {
+      worker.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package com.vending.telemetry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 單台機台的感測器時間序列，全部存放在 heap 之外的固定大小環狀緩衝區。
+ *
+ * 緩衝區分三段：原始讀值、每分鐘彙總、每小時彙總。寫入原始讀值時同步更新目前的分鐘與小時桶，
+ * 舊資料由環狀覆寫自然淘汰，GC 完全看不到這些資料。
+ * 非執行緒安全；每台機台由單一執行緒寫入。
+ */
+public final class SensorTimeSeries {
+  public static final int VOLTAGE = 0;
+  public static final int TEMPERATURE = 1;
+  public static final int CLEANLINESS = 2;
+  private static final int SENSORS = 3;
+
+  public enum Resolution {
+    MINUTE(60_000L), HOUR(3_600_000L);
+
+    private final long millis;
+
+    Resolution(long millis) { this.millis = millis; }
+
+    public long getMillis() { return millis; }
+  }
+
+  // 原始讀值：long 時間戳 + 3 個 int
+  private static final int RAW_BYTES = 8 + SENSORS * 4;
+  // 彙總桶：long 桶編號 + int 筆數 + 每個感測器 (int min, int max, long sum)，補齊到 64 bytes
+  private static final int ROLLUP_BYTES = 64;
+  private static final int ROLLUP_SENSOR_OFFSET = 12;
+
+  private final ByteBuffer buffer;
+  private final int rawCapacity;
+  private final int minuteCapacity;
+  private final int hourCapacity;
+  private final int minuteBase;
+  private final int hourBase;
+
+  private long rawCount;
+  private long minuteCount;
+  private long hourCount;
+
+  SensorTimeSeries(ByteBuffer buffer, int rawCapacity, int minuteCapacity, int hourCapacity) {
+    if (rawCapacity <= 0 || minuteCapacity <= 0 || hourCapacity <= 0) throw new IllegalArgumentException("容量必須大於 0");
+    if (buffer.capacity() < bytesFor(rawCapacity, minuteCapacity, hourCapacity)) throw new IllegalArgumentException("緩衝區太小");
+    this.buffer = buffer;
+    this.rawCapacity = rawCapacity;
+    this.minuteCapacity = minuteCapacity;
+    this.hourCapacity = hourCapacity;
+    this.minuteBase = rawCapacity * RAW_BYTES;
+    this.hourBase = minuteBase + minuteCapacity * ROLLUP_BYTES;
+  }
+
+  public static SensorTimeSeries allocate(int rawCapacity, int minuteCapacity, int hourCapacity) {
+    ByteBuffer buf = ByteBuffer.allocateDirect((int) bytesFor(rawCapacity, minuteCapacity, hourCapacity));
+    return new SensorTimeSeries(buf, rawCapacity, minuteCapacity, hourCapacity);
+  }
+
+  static long bytesFor(int rawCapacity, int minuteCapacity, int hourCapacity) {
+    return (long) rawCapacity * RAW_BYTES + (long) (minuteCapacity + hourCapacity) * ROLLUP_BYTES;
+  }
+
+  public void append(long timestamp, int voltage, int temperature, int cleanliness) {
+    int off = (int) (rawCount % rawCapacity) * RAW_BYTES;
+    buffer.putLong(off, timestamp);
+    buffer.putInt(off + 8, voltage);
+    buffer.putInt(off + 12, temperature);
+    buffer.putInt(off + 16, cleanliness);
+    rawCount++;
+
+    minuteCount = roll(minuteBase, minuteCapacity, minuteCount, Math.floorDiv(timestamp, Resolution.MINUTE.millis),
+        voltage, temperature, cleanliness);
+    hourCount = roll(hourBase, hourCapacity, hourCount, Math.floorDiv(timestamp, Resolution.HOUR.millis),
+        voltage, temperature, cleanliness);
+  }
+
+  private long roll(int base, int capacity, long count, long bucket, int v0, int v1, int v2) {
+    int off = count == 0 ? -1 : base + (int) ((count - 1) % capacity) * ROLLUP_BYTES;
+    // 同一桶或時間倒退的讀值都併入最新的桶
+    if (off < 0 || buffer.getLong(off) < bucket) {
+      off = base + (int) (count % capacity) * ROLLUP_BYTES;
+      buffer.putLong(off, bucket);
+      buffer.putInt(off + 8, 0);
+      count++;
+    }
+    int n = buffer.getInt(off + 8);
+    accumulate(off, 0, v0, n);
+    accumulate(off, 1, v1, n);
+    accumulate(off, 2, v2, n);
+    buffer.putInt(off + 8, n + 1);
+    return count;
+  }
+
+  private void accumulate(int entry, int sensor, int value, int n) {
+    int off = entry + ROLLUP_SENSOR_OFFSET + sensor * 16;
+    if (n == 0) {
+      buffer.putInt(off, value);
+      buffer.putInt(off + 4, value);
+      buffer.putLong(off + 8, value);
+    } else {
+      buffer.putInt(off, Math.min(buffer.getInt(off), value));
+      buffer.putInt(off + 4, Math.max(buffer.getInt(off + 4), value));
+      buffer.putLong(off + 8, buffer.getLong(off + 8) + value);
+    }
+  }
+
+  /** 最近 windowMillis 內 (以 now 為準) 的原始讀值統計。 */
+  public WindowStats window(int sensor, long windowMillis, long now) {
+    checkSensor(sensor);
+    long from = now - windowMillis;
+    long available = Math.min(rawCount, rawCapacity);
+    long count = 0;
+    long sum = 0;
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (long i = 1; i <= available; i++) {
+      int off = (int) ((rawCount - i) % rawCapacity) * RAW_BYTES;
+      long ts = buffer.getLong(off);
+      if (ts < from) break;
+      if (ts > now) continue;
+      int value = buffer.getInt(off + 8 + sensor * 4);
+      count++;
+      sum += value;
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+    return new WindowStats(count, min, max, sum);
+  }
+
+  /** 以分鐘或小時彙總計算 [from, to) 區間的統計，可涵蓋遠超過原始環大小的時間範圍。 */
+  public WindowStats rollup(Resolution resolution, int sensor, long from, long to) {
+    checkSensor(sensor);
+    int base = resolution == Resolution.MINUTE ? minuteBase : hourBase;
+    int capacity = resolution == Resolution.MINUTE ? minuteCapacity : hourCapacity;
+    long total = resolution == Resolution.MINUTE ? minuteCount : hourCount;
+    long firstBucket = Math.floorDiv(from, resolution.millis);
+    long lastBucket = Math.floorDiv(to - 1, resolution.millis);
+    long count = 0;
+    long sum = 0;
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (long i = 1; i <= Math.min(total, capacity); i++) {
+      int off = base + (int) ((total - i) % capacity) * ROLLUP_BYTES;
+      long bucket = buffer.getLong(off);
+      if (bucket < firstBucket) break;
+      if (bucket > lastBucket) continue;
+      int s = off + ROLLUP_SENSOR_OFFSET + sensor * 16;
+      count += buffer.getInt(off + 8);
+      sum += buffer.getLong(s + 8);
+      min = Math.min(min, buffer.getInt(s));
+      max = Math.max(max, buffer.getInt(s + 4));
+    }
+    return new WindowStats(count, min, max, sum);
+  }
+
+  public long getSampleCount() { return rawCount; }
+  ByteBuffer buffer() { return buffer; }
+
+  private static void checkSensor(int sensor) {
+    if (sensor < 0 || sensor >= SENSORS) throw new IllegalArgumentException("未知感測器: " + sensor);
+  }
+}
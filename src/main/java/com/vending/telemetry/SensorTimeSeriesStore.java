@@ -0,0 +1,84 @@
+package com.vending.telemetry;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * 為大量鏡像機台配置感測器時間序列。
+ * 以少數幾塊大型 direct buffer 切片給各機台，避免每台機台各自配置一塊 off-heap 記憶體。
+ * 可在建立時預先配置固定台數，也可以用 {@link #acquire()} 依需要切出新的一片，
+ * 目前的 slab 用完才配置下一塊。倉庫應隨機隊建立與丟棄，不應做成全域共用。
+ */
+public final class SensorTimeSeriesStore {
+  private static final long MAX_SLAB_BYTES = 1L << 30;
+
+  private final int rawCapacity;
+  private final int minuteCapacity;
+  private final int hourCapacity;
+  private final long perSeries;
+  private final int seriesPerSlab;
+  // 預先配置的機台以索引取得；acquire() 切出的片不在此保留
+  private final SensorTimeSeries[] preallocated;
+  // release() 歸還的切片，下次 acquire() 優先重複使用
+  private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+  private ByteBuffer slab;
+  private int usedInSlab;
+  private int inUse;
+
+  /** 預先配置 machines 台的時間序列。 */
+  public SensorTimeSeriesStore(int machines, int rawCapacity, int minuteCapacity, int hourCapacity) {
+    this(Math.max(1, machines), rawCapacity, minuteCapacity, hourCapacity, machines);
+  }
+
+  private SensorTimeSeriesStore(int seriesPerSlab, int rawCapacity, int minuteCapacity, int hourCapacity, int preallocate) {
+    this.rawCapacity = rawCapacity;
+    this.minuteCapacity = minuteCapacity;
+    this.hourCapacity = hourCapacity;
+    this.perSeries = SensorTimeSeries.bytesFor(rawCapacity, minuteCapacity, hourCapacity);
+    if (perSeries > MAX_SLAB_BYTES) throw new IllegalArgumentException("單台機台容量過大");
+    this.seriesPerSlab = (int) Math.min(seriesPerSlab, MAX_SLAB_BYTES / perSeries);
+    this.preallocated = new SensorTimeSeries[preallocate];
+    for (int i = 0; i < preallocate; i++) preallocated[i] = acquire();
+  }
+
+  /** 不預先配置，每塊 slab 容納 seriesPerSlab 台，第一次 {@link #acquire()} 時才配置。 */
+  public static SensorTimeSeriesStore lazy(int seriesPerSlab, int rawCapacity, int minuteCapacity, int hourCapacity) {
+    if (seriesPerSlab <= 0) throw new IllegalArgumentException("seriesPerSlab 必須大於 0");
+    return new SensorTimeSeriesStore(seriesPerSlab, rawCapacity, minuteCapacity, hourCapacity, 0);
+  }
+
+  /**
+   * 切出一片空的時間序列，優先重複使用已歸還的切片。
+   * 倉庫不保留取出的切片；機台下線時以 {@link #release(SensorTimeSeries)} 歸還，
+   * 或連同倉庫一起丟棄，slab 在所有切片都不再使用後由 GC 釋放。
+   */
+  public synchronized SensorTimeSeries acquire() {
+    ByteBuffer slice = free.poll();
+    if (slice == null) {
+      if (slab == null || usedInSlab == seriesPerSlab) {
+        slab = ByteBuffer.allocateDirect((int) (seriesPerSlab * perSeries));
+        usedInSlab = 0;
+      }
+      slice = slab.slice((int) (usedInSlab++ * perSeries), (int) perSeries);
+    }
+    inUse++;
+    // 新物件的筆數從 0 開始，切片裡上一位使用者的資料不會被讀到
+    return new SensorTimeSeries(slice, rawCapacity, minuteCapacity, hourCapacity);
+  }
+
+  /** 歸還切片給之後的 {@link #acquire()} 使用；歸還後原本的 series 不可再讀寫。 */
+  public synchronized void release(SensorTimeSeries s) {
+    ByteBuffer slice = s.buffer();
+    if (slice.capacity() != perSeries || !slice.isDirect()) throw new IllegalArgumentException("不是此倉庫切出的時間序列");
+    free.push(slice);
+    inUse--;
+  }
+
+  /** 取得建立時預先配置的第 machineIndex 台。 */
+  public SensorTimeSeries get(int machineIndex) { return preallocated[machineIndex]; }
+  /** 目前取出尚未歸還的片數。 */
+  public synchronized int size() { return inUse; }
+  public int getRawCapacity() { return rawCapacity; }
+  public int getMinuteCapacity() { return minuteCapacity; }
+  public int getHourCapacity() { return hourCapacity; }
+}
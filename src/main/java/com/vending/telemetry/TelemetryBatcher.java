@@ -0,0 +1,62 @@
+package com.vending.telemetry;
+
+import com.vending.service.ChangeService;
+import com.vending.state.MaintenanceState;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 累積遙測紀錄，達到筆數上限時打包成壓縮訊框交給 frameSink 上傳。
+ * 紀錄愈多，差值與壓縮效果愈好，4G 流量也就愈省。
+ */
+public class TelemetryBatcher {
+  private static final int[] DENOMINATIONS = {50, 10, 5, 1};
+
+  private final String machineId;
+  private final int maxRecordsPerFrame;
+  private final Consumer<byte[]> frameSink;
+  private final List<TelemetryRecord> pending = new ArrayList<>();
+  private final int[] lastCoinCounts = {-1, -1, -1, -1};
+
+  public TelemetryBatcher(String machineId, int maxRecordsPerFrame, Consumer<byte[]> frameSink) {
+    if (maxRecordsPerFrame <= 0) throw new IllegalArgumentException("maxRecordsPerFrame 必須大於 0");
+    this.machineId = machineId;
+    this.maxRecordsPerFrame = maxRecordsPerFrame;
+    this.frameSink = frameSink;
+  }
+
+  public synchronized void record(TelemetryRecord record) {
+    pending.add(record);
+    if (pending.size() >= maxRecordsPerFrame) flush();
+  }
+
+  public void recordSensors(MaintenanceState ms, long timestamp) {
+    record(TelemetryRecord.sensor(timestamp, ms.getCurrentVoltage(), ms.getCurrentTemp(),
+        ms.getCoinMechCleanliness(), ms.isWifi(), ms.isSim4g()));
+  }
+
+  public void recordSale(String drinkId, int price, int paid, int change, long timestamp) {
+    record(TelemetryRecord.sale(timestamp, drinkId, price, paid, change));
+  }
+
+  /** 只記錄與上次不同的面額庫存。 */
+  public synchronized void recordCoinReserves(ChangeService changeService, long timestamp) {
+    for (int i = 0; i < DENOMINATIONS.length; i++) {
+      int count = changeService.getCoinCount(DENOMINATIONS[i]);
+      if (count != lastCoinCounts[i]) {
+        lastCoinCounts[i] = count;
+        record(TelemetryRecord.coinReserve(timestamp, DENOMINATIONS[i], count));
+      }
+    }
+  }
+
+  public synchronized void flush() {
+    if (pending.isEmpty()) return;
+    byte[] frame = TelemetryCodec.encodeFrame(machineId, pending);
+    pending.clear();
+    frameSink.accept(frame);
+  }
+
+  public synchronized int pendingCount() { return pending.size(); }
+}
@@ -0,0 +1,240 @@
+package com.vending.telemetry;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 遙測訊框的二進位編解碼。
+ * 訊框格式：'V' 'T' | 版本 | 旗標 | 機台 ID | 筆數 | 原始長度 | 內容 (可能經 Deflate 壓縮)。
+ * 內容中的時間戳與感測值皆以前一筆為基準做差值編碼，飲料 ID 以訊框內字典取代，
+ * 因此每個訊框可獨立解碼。
+ */
+public final class TelemetryCodec {
+  private static final byte MAGIC_0 = 'V';
+  private static final byte MAGIC_1 = 'T';
+  private static final byte VERSION = 1;
+  private static final int FLAG_DEFLATE = 1;
+  // 解碼時長度欄位的上限，防止損毀的訊框觸發超大配置
+  private static final int MAX_ID_BYTES = 256;
+  private static final int MAX_PAYLOAD_BYTES = 16 << 20;
+
+  private TelemetryCodec() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  /** 解碼後的訊框內容。 */
+  public static final class Frame {
+    private final String machineId;
+    private final List<TelemetryRecord> records;
+
+    Frame(String machineId, List<TelemetryRecord> records) {
+      this.machineId = machineId;
+      this.records = records;
+    }
+
+    public String getMachineId() { return machineId; }
+    public List<TelemetryRecord> getRecords() { return records; }
+  }
+
+  public static byte[] encodeFrame(String machineId, List<TelemetryRecord> records) {
+    byte[] payload = encodePayload(records);
+    byte[] body = payload;
+    int flags = 0;
+    byte[] compressed = deflate(payload);
+    if (compressed.length < payload.length) {
+      body = compressed;
+      flags |= FLAG_DEFLATE;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(body.length + 32);
+    out.write(MAGIC_0);
+    out.write(MAGIC_1);
+    out.write(VERSION);
+    out.write(flags);
+    byte[] id = machineId.getBytes(StandardCharsets.UTF_8);
+    Varint.writeUnsigned(out, id.length);
+    out.write(id, 0, id.length);
+    Varint.writeUnsigned(out, records.size());
+    Varint.writeUnsigned(out, payload.length);
+    out.write(body, 0, body.length);
+    return out.toByteArray();
+  }
+
+  /** 解碼訊框；任何格式錯誤、截斷或長度不合理都以 IllegalArgumentException 回報。 */
+  public static Frame decodeFrame(byte[] frame) {
+    ByteBuffer in = ByteBuffer.wrap(frame);
+    try {
+      if (in.get() != MAGIC_0 || in.get() != MAGIC_1) throw new IllegalArgumentException("不是遙測訊框");
+      byte version = in.get();
+      if (version != VERSION) throw new IllegalArgumentException("不支援的版本: " + version);
+      int flags = in.get();
+      byte[] id = new byte[readLength(in, Math.min(MAX_ID_BYTES, in.remaining()), "機台編號")];
+      in.get(id);
+      int count = readLength(in, MAX_PAYLOAD_BYTES, "紀錄筆數");
+      int rawLength = readLength(in, MAX_PAYLOAD_BYTES, "內容長度");
+      // 每筆紀錄至少有型別與時間戳兩個位元組
+      if (count > rawLength / 2) throw new IllegalArgumentException("紀錄筆數不合理: " + count);
+      byte[] body = new byte[in.remaining()];
+      in.get(body);
+      boolean deflated = (flags & FLAG_DEFLATE) != 0;
+      if (!deflated && body.length != rawLength) throw new IllegalArgumentException("訊框內容不完整");
+      byte[] payload = deflated ? inflate(body, rawLength) : body;
+      return new Frame(new String(id, StandardCharsets.UTF_8), decodePayload(ByteBuffer.wrap(payload), count));
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("訊框內容不完整", e);
+    }
+  }
+
+  private static int readLength(ByteBuffer in, int max, String field) {
+    long length = Varint.readUnsigned(in);
+    if (length > max) throw new IllegalArgumentException(field + "超出範圍: " + length);
+    return (int) length;
+  }
+
+  private static byte[] encodePayload(List<TelemetryRecord> records) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(records.size() * 8);
+    long prevTs = 0;
+    int prevVoltage = 0;
+    int prevTemp = 0;
+    int prevClean = 0;
+    Map<String, Integer> dictionary = new HashMap<>();
+    Map<Integer, Integer> coinCounts = new HashMap<>();
+
+    for (TelemetryRecord r : records) {
+      out.write(r.getType().ordinal());
+      Varint.writeSigned(out, r.getTimestamp() - prevTs);
+      prevTs = r.getTimestamp();
+      switch (r.getType()) {
+        case SENSOR:
+          Varint.writeSigned(out, r.getVoltage() - prevVoltage);
+          Varint.writeSigned(out, r.getTemperature() - prevTemp);
+          Varint.writeSigned(out, r.getCleanliness() - prevClean);
+          out.write((r.isWifi() ? 1 : 0) | (r.isSim4g() ? 2 : 0));
+          prevVoltage = r.getVoltage();
+          prevTemp = r.getTemperature();
+          prevClean = r.getCleanliness();
+          break;
+        case SALE:
+          Integer index = dictionary.get(r.getDrinkId());
+          if (index == null) {
+            Varint.writeUnsigned(out, 0);
+            byte[] idBytes = r.getDrinkId().getBytes(StandardCharsets.UTF_8);
+            Varint.writeUnsigned(out, idBytes.length);
+            out.write(idBytes, 0, idBytes.length);
+            dictionary.put(r.getDrinkId(), dictionary.size() + 1);
+          } else {
+            Varint.writeUnsigned(out, index);
+          }
+          Varint.writeSigned(out, r.getPrice());
+          Varint.writeSigned(out, r.getPaid() - r.getPrice());
+          Varint.writeSigned(out, r.getChange());
+          break;
+        case COIN_RESERVE:
+          Varint.writeUnsigned(out, r.getDenomination());
+          Varint.writeSigned(out, r.getCount() - coinCounts.getOrDefault(r.getDenomination(), 0));
+          coinCounts.put(r.getDenomination(), r.getCount());
+          break;
+        default:
+          throw new IllegalStateException("未知紀錄類型: " + r.getType());
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static List<TelemetryRecord> decodePayload(ByteBuffer in, int count) {
+    List<TelemetryRecord> records = new ArrayList<>(count);
+    TelemetryRecord.Type[] types = TelemetryRecord.Type.values();
+    long ts = 0;
+    int voltage = 0;
+    int temp = 0;
+    int clean = 0;
+    List<String> dictionary = new ArrayList<>();
+    Map<Integer, Integer> coinCounts = new HashMap<>();
+
+    for (int i = 0; i < count; i++) {
+      int code = in.get() & 0xff;
+      if (code >= types.length) throw new IllegalArgumentException("第 " + (i + 1) + " 筆紀錄類型未知: " + code);
+      TelemetryRecord.Type type = types[code];
+      ts += Varint.readSigned(in);
+      switch (type) {
+        case SENSOR:
+          voltage += (int) Varint.readSigned(in);
+          temp += (int) Varint.readSigned(in);
+          clean += (int) Varint.readSigned(in);
+          int net = in.get();
+          records.add(TelemetryRecord.sensor(ts, voltage, temp, clean, (net & 1) != 0, (net & 2) != 0));
+          break;
+        case SALE:
+          int index = (int) Varint.readUnsigned(in);
+          String drinkId;
+          if (index == 0) {
+            byte[] idBytes = new byte[(int) Varint.readUnsigned(in)];
+            in.get(idBytes);
+            drinkId = new String(idBytes, StandardCharsets.UTF_8);
+            dictionary.add(drinkId);
+          } else if (index <= dictionary.size()) {
+            drinkId = dictionary.get(index - 1);
+          } else {
+            throw new IllegalArgumentException("第 " + (i + 1) + " 筆商品索引超出字典: " + index);
+          }
+          int price = (int) Varint.readSigned(in);
+          int paid = price + (int) Varint.readSigned(in);
+          int change = (int) Varint.readSigned(in);
+          records.add(TelemetryRecord.sale(ts, drinkId, price, paid, change));
+          break;
+        default:
+          int denomination = (int) Varint.readUnsigned(in);
+          int coins = coinCounts.getOrDefault(denomination, 0) + (int) Varint.readSigned(in);
+          coinCounts.put(denomination, coins);
+          records.add(TelemetryRecord.coinReserve(ts, denomination, coins));
+      }
+    }
+    return records;
+  }
+
+  private static byte[] deflate(byte[] data) {
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+      byte[] buf = new byte[4096];
+      while (!deflater.finished()) {
+        int n = deflater.deflate(buf);
+        out.write(buf, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(byte[] data, int rawLength) {
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(data);
+      byte[] out = new byte[rawLength];
+      int off = 0;
+      while (off < rawLength && !inflater.finished()) {
+        int n = inflater.inflate(out, off, rawLength - off);
+        if (n == 0 && inflater.needsInput()) break;
+        off += n;
+      }
+      if (off != rawLength) throw new IllegalArgumentException("訊框內容不完整");
+      return out;
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException("訊框解壓失敗", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
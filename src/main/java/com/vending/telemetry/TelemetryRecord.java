@@ -0,0 +1,90 @@
+package com.vending.telemetry;
+
+import java.util.Objects;
+
+/**
+ * 單筆遙測紀錄：感測器讀值、銷售或硬幣庫存變動。
+ * 依 type 使用不同欄位，未使用的欄位為 0 / null。
+ */
+public final class TelemetryRecord {
+  public enum Type { SENSOR, SALE, COIN_RESERVE }
+
+  private final Type type;
+  private final long timestamp;
+  // SENSOR
+  private final int voltage;
+  private final int temperature;
+  private final int cleanliness;
+  private final boolean wifi;
+  private final boolean sim4g;
+  // SALE
+  private final String drinkId;
+  private final int price;
+  private final int paid;
+  private final int change;
+  // COIN_RESERVE
+  private final int denomination;
+  private final int count;
+
+  private TelemetryRecord(Type type, long timestamp, int voltage, int temperature, int cleanliness,
+                          boolean wifi, boolean sim4g, String drinkId, int price, int paid, int change,
+                          int denomination, int count) {
+    this.type = type; this.timestamp = timestamp;
+    this.voltage = voltage; this.temperature = temperature; this.cleanliness = cleanliness;
+    this.wifi = wifi; this.sim4g = sim4g;
+    this.drinkId = drinkId; this.price = price; this.paid = paid; this.change = change;
+    this.denomination = denomination; this.count = count;
+  }
+
+  public static TelemetryRecord sensor(long timestamp, int voltage, int temperature, int cleanliness,
+                                       boolean wifi, boolean sim4g) {
+    return new TelemetryRecord(Type.SENSOR, timestamp, voltage, temperature, cleanliness, wifi, sim4g,
+        null, 0, 0, 0, 0, 0);
+  }
+
+  public static TelemetryRecord sale(long timestamp, String drinkId, int price, int paid, int change) {
+    return new TelemetryRecord(Type.SALE, timestamp, 0, 0, 0, false, false,
+        Objects.requireNonNull(drinkId), price, paid, change, 0, 0);
+  }
+
+  public static TelemetryRecord coinReserve(long timestamp, int denomination, int count) {
+    return new TelemetryRecord(Type.COIN_RESERVE, timestamp, 0, 0, 0, false, false,
+        null, 0, 0, 0, denomination, count);
+  }
+
+  public Type getType() { return type; }
+  public long getTimestamp() { return timestamp; }
+  public int getVoltage() { return voltage; }
+  public int getTemperature() { return temperature; }
+  public int getCleanliness() { return cleanliness; }
+  public boolean isWifi() { return wifi; }
+  public boolean isSim4g() { return sim4g; }
+  public String getDrinkId() { return drinkId; }
+  public int getPrice() { return price; }
+  public int getPaid() { return paid; }
+  public int getChange() { return change; }
+  public int getDenomination() { return denomination; }
+  public int getCount() { return count; }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof TelemetryRecord)) return false;
+    TelemetryRecord r = (TelemetryRecord) o;
+    return type == r.type && timestamp == r.timestamp && voltage == r.voltage && temperature == r.temperature
+        && cleanliness == r.cleanliness && wifi == r.wifi && sim4g == r.sim4g
+        && Objects.equals(drinkId, r.drinkId) && price == r.price && paid == r.paid && change == r.change
+        && denomination == r.denomination && count == r.count;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(type, timestamp, voltage, temperature, cleanliness, wifi, sim4g,
+        drinkId, price, paid, change, denomination, count);
+  }
+
+  @Override
+  public String toString() {
+    return "TelemetryRecord{" + type + "@" + timestamp + "}";
+  }
+}
@@ -0,0 +1,40 @@
+package com.vending.telemetry;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * LEB128 變長整數與 ZigZag 編碼，小數值只佔 1 byte。
+ */
+final class Varint {
+  private Varint() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  static void writeUnsigned(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  static void writeSigned(ByteArrayOutputStream out, long value) {
+    writeUnsigned(out, (value << 1) ^ (value >> 63));
+  }
+
+  static long readUnsigned(ByteBuffer in) {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.get();
+      result |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return result;
+    }
+    throw new IllegalArgumentException("varint 過長");
+  }
+
+  static long readSigned(ByteBuffer in) {
+    long raw = readUnsigned(in);
+    return (raw >>> 1) ^ -(raw & 1);
+  }
+}
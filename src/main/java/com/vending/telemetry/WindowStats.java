@@ -0,0 +1,29 @@
+package com.vending.telemetry;
+
+/**
+ * 一段時間窗內單一感測器的統計值。count 為 0 時 min / max / mean 無意義。
+ */
+public final class WindowStats {
+  private final long count;
+  private final int min;
+  private final int max;
+  private final long sum;
+
+  WindowStats(long count, int min, int max, long sum) {
+    this.count = count;
+    this.min = min;
+    this.max = max;
+    this.sum = sum;
+  }
+
+  public long getCount() { return count; }
+  public int getMin() { return min; }
+  public int getMax() { return max; }
+  public double getMean() { return count == 0 ? 0 : (double) sum / count; }
+  public boolean isEmpty() { return count == 0; }
+
+  @Override
+  public String toString() {
+    return "WindowStats{count=" + count + ", min=" + min + ", max=" + max + ", mean=" + getMean() + "}";
+  }
+}
@@ -0,0 +1,73 @@
+package com.vending.backtest;
+
+import com.vending.model.Drink;
+import com.vending.service.DiscountEngine;
+import com.vending.service.DiscountService;
+import com.vending.service.PromotionRules;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionBacktesterTest {
+
+  @Test
+  void testParallelReplayMatchesSequential(@TempDir Path dir) throws Exception {
+    DiscountEngine oldEngine = new DiscountEngine();
+    DiscountEngine newEngine = new DiscountEngine();
+    newEngine.setRules(PromotionRules.compile("when balance > 40 then sub 3"));
+    PricingModel baseline = PricingModel.of(oldEngine);
+    PricingModel candidate = PricingModel.of(newEngine);
+
+    StringBuilder csv = new StringBuilder("# drinkId,name,price,stock,hot,balance,vip,quantity\n");
+    BacktestReport expected = new BacktestReport();
+    String[] names = {"可樂", "Ice Tea", "Latte Coffee", ""};
+    for (int i = 0; i < 2000; i++) {
+      String name = names[i % names.length];
+      int price = 10 + (i % 35);
+      int stock = i % 20;
+      boolean hot = i % 3 == 0;
+      int balance = i % 120;
+      boolean vip = i % 7 == 0;
+      int quantity = 1 + (i % 2);
+      csv.append("D").append(i % 9).append(',').append(name).append(',').append(price).append(',')
+          .append(stock).append(',').append(hot ? 1 : 0).append(',').append(balance).append(',')
+          .append(vip ? "true" : "false").append(',').append(quantity).append(i % 5 == 0 ? "\r\n" : "\n");
+      Drink d = new Drink("D", name.isEmpty() ? null : name, price, stock, hot);
+      expected.add(price * quantity, balance,
+          baseline.price(d, balance, vip, quantity), candidate.price(d, balance, vip, quantity));
+    }
+    Path file = dir.resolve("history.csv");
+    Files.writeString(file, csv);
+
+    BacktestReport report = new PromotionBacktester(baseline, candidate, new ForkJoinPool(4), 256).run(file);
+    assertEquals(2000, report.getRows());
+    assertEquals(expected.toString(), report.toString());
+    assertTrue(report.getChangedRows() > 0);
+    assertTrue(report.getRevenueDiff() < 0);
+    assertTrue(report.getCandidateDiscountDepth() > report.getBaselineDiscountDepth());
+  }
+
+  @Test
+  void testDiscountServiceModelAndErrors(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("h.csv");
+    Files.writeString(file, "A1,Cola,100,5,0,500,0,2\n");
+    PromotionBacktester bt = new PromotionBacktester(PricingModel.of(new DiscountService()),
+        (d, b, v, q) -> d.getPrice() * q);
+    BacktestReport r = bt.run(file);
+    assertEquals(180, r.getBaselineRevenue());
+    assertEquals(200, r.getCandidateRevenue());
+    assertEquals(20, r.getRevenueDiff());
+
+    Path empty = dir.resolve("empty.csv");
+    Files.writeString(empty, "");
+    assertEquals(0, bt.run(empty).getRows());
+
+    Files.writeString(file, "A1,Cola,100\n");
+    assertThrows(IllegalArgumentException.class, () -> bt.run(file));
+    Files.writeString(file, "A1,Cola,1x0,5,0,500,0,2\n");
+    assertThrows(IllegalArgumentException.class, () -> bt.run(file));
+  }
+}
@@ -0,0 +1,185 @@
+package com.vending.core;
+
+import com.vending.model.Drink;
+import com.vending.state.HasMoneyState;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispensePipelineTest {
+
+  private static int sum(Map<Integer, Integer> coins) {
+    int total = 0;
+    for (Map.Entry<Integer, Integer> e : coins.entrySet()) total += e.getKey() * e.getValue();
+    return total;
+  }
+
+  @Test
+  void testNextCustomerPaysWhileMotorRuns() throws Exception {
+    VendingMachine vm = new VendingMachine();
+    assertNull(vm.getDispensePipeline());
+    Semaphore go = new Semaphore(0);
+    List<String> delivered = new CopyOnWriteArrayList<>();
+    List<Integer> change = new CopyOnWriteArrayList<>();
+    vm.enablePipelinedDispense(drink -> {
+      go.acquire();
+      delivered.add(drink.getId());
+    }, 4, (id, drinkId, ok, coinsOut, owed) -> change.add(sum(coinsOut)));
+
+    vm.insertCoin(50);
+    vm.selectDrink("A1");
+    // 收款與保留庫存已完成，機台立即回到待機
+    assertSame(vm.getIdleState(), vm.getCurrentState());
+    assertEquals(0, vm.getBalance());
+    assertEquals(9, vm.getInventory().get("A1").getStock());
+    assertTrue(vm.getLastChange().isEmpty());
+
+    vm.insertCoin(10);
+    vm.insertCoin(10);
+    vm.selectDrink("A2");
+    assertSame(vm.getIdleState(), vm.getCurrentState());
+    assertEquals(2, vm.getDispensePipeline().pending());
+
+    go.release();
+    DispensePipeline pipeline = vm.getDispensePipeline();
+    // 第一件完成回呼後名額才歸還
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+      while (pipeline.pending() > 1) Thread.sleep(1);
+    });
+    assertEquals(List.of("A1"), delivered);
+    // 每件的找零個別回報，不會寫進機台上目前顧客的找零
+    assertEquals(List.of(25), change);
+    assertTrue(vm.getLastChange().isEmpty());
+
+    go.release();
+    assertTrue(vm.getDispensePipeline().awaitIdle(Duration.ofSeconds(5)));
+    assertEquals(List.of("A1", "A2"), delivered);
+    assertEquals(List.of(25, 0), change);
+
+    vm.disablePipelinedDispense();
+    assertNull(vm.getDispensePipeline());
+    vm.insertCoin(50);
+    vm.selectDrink("A1");
+    assertEquals(25, sum(vm.getLastChange()));
+  }
+
+  @Test
+  void testFullQueueKeepsCustomerBalance() throws Exception {
+    VendingMachine vm = new VendingMachine();
+    Semaphore go = new Semaphore(0);
+    vm.enablePipelinedDispense(drink -> go.acquire(), 1);
+
+    vm.insertCoin(50);
+    vm.selectDrink("A1");
+    vm.insertCoin(50);
+    vm.selectDrink("A1");
+    assertInstanceOf(HasMoneyState.class, vm.getCurrentState());
+    assertEquals(50, vm.getBalance());
+    assertEquals(9, vm.getInventory().get("A1").getStock());
+
+    go.release();
+    assertTrue(vm.getDispensePipeline().awaitIdle(Duration.ofSeconds(5)));
+    vm.selectDrink("A1");
+    assertSame(vm.getIdleState(), vm.getCurrentState());
+    go.release();
+    vm.disablePipelinedDispense();
+    assertEquals(8, vm.getInventory().get("A1").getStock());
+  }
+
+  @Test
+  void testMotorFailureRefundsAndReturnsStock() throws Exception {
+    VendingMachine vm = new VendingMachine();
+    MachineBank bank = new MachineBank();
+    bank.join(vm);
+    List<Integer> refunds = new CopyOnWriteArrayList<>();
+    vm.enablePipelinedDispense(drink -> { throw new IllegalStateException("卡貨"); }, 2,
+        (id, drinkId, ok, coinsOut, owed) -> refunds.add(ok ? -1 : sum(coinsOut)));
+
+    // B1 只剩 2 件，售出一件保留後再退回
+    vm.insertCoin(50);
+    vm.selectDrink("B1");
+    assertTrue(vm.getDispensePipeline().awaitIdle(Duration.ofSeconds(5)));
+    assertEquals(2, vm.getInventory().get("B1").getStock());
+    assertEquals(List.of(50), refunds);
+    assertTrue(vm.getLastChange().isEmpty());
+    assertTrue(bank.anyHasStock("B1"));
+    vm.disablePipelinedDispense();
+  }
+
+  @Test
+  void testFailureAfterRestockReturnsStockToLiveSlot() throws Exception {
+    VendingMachine vm = new VendingMachine();
+    Semaphore go = new Semaphore(0);
+    vm.enablePipelinedDispense(drink -> {
+      go.acquire();
+      throw new IllegalStateException("卡貨");
+    }, 2, (id, drinkId, ok, coinsOut, owed) -> { });
+
+    vm.insertCoin(50);
+    vm.selectDrink("A1");
+    Drink reserved = vm.getInventory().get("A1");
+    // 出貨期間整批補貨，庫存表換成新的 Drink 物件
+    Map<String, Drink> next = new HashMap<>();
+    for (Drink d : vm.getInventory().values()) next.put(d.getId(), new Drink(d.getId(), d.getName(), d.getPrice(), 20, d.isHot()));
+    vm.replaceInventory(next);
+    go.release();
+    assertTrue(vm.getDispensePipeline().awaitIdle(Duration.ofSeconds(5)));
+    assertEquals(21, vm.getInventory().get("A1").getStock());
+    assertEquals(9, reserved.getStock());
+    vm.disablePipelinedDispense();
+  }
+
+  @Test
+  void testFailureWithEmptyTubesReportsOwedAmount() throws Exception {
+    VendingMachine vm = new VendingMachine();
+    Semaphore go = new Semaphore(0);
+    List<Integer> owedAmounts = new CopyOnWriteArrayList<>();
+    List<Integer> coins = new CopyOnWriteArrayList<>();
+    vm.enablePipelinedDispense(drink -> {
+      go.acquire();
+      throw new IllegalStateException("卡貨");
+    }, 2, (id, drinkId, ok, coinsOut, owed) -> {
+      coins.add(sum(coinsOut));
+      owedAmounts.add(owed);
+    });
+
+    // 剛好金額購買，出貨失敗前找零筒已被清空
+    vm.insertCoin(10);
+    vm.insertCoin(10);
+    vm.insertCoin(5);
+    vm.selectDrink("A1");
+    for (int coin : new int[]{50, 10, 5, 1}) vm.getChangeService().setCoinCount(coin, 0);
+    go.release();
+    assertTrue(vm.getDispensePipeline().awaitIdle(Duration.ofSeconds(5)));
+    assertEquals(List.of(0), coins);
+    assertEquals(List.of(25), owedAmounts);
+    vm.disablePipelinedDispense();
+  }
+
+  @Test
+  void testDisableFromListenerDoesNotDeadlock() throws Exception {
+    VendingMachine vm = new VendingMachine();
+    Semaphore done = new Semaphore(0);
+    vm.enablePipelinedDispense(drink -> { }, 2, (id, drinkId, ok, coinsOut, owed) -> {
+      try {
+        vm.disablePipelinedDispense();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      done.release();
+    });
+    DispensePipeline pipeline = vm.getDispensePipeline();
+    vm.insertCoin(50);
+    vm.selectDrink("A1");
+    assertTrue(done.tryAcquire(5, TimeUnit.SECONDS));
+    assertNull(vm.getDispensePipeline());
+    assertTrue(pipeline.awaitIdle(Duration.ofSeconds(5)));
+    assertFalse(pipeline.tryReserve());
+  }
+}
@@ -0,0 +1,89 @@
+package com.vending.core;
+
+import com.vending.state.SoldOutState;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MachineBankTest {
+
+  private static VendingMachine[] bankOf(MachineBank bank, int n) {
+    VendingMachine[] vms = new VendingMachine[n];
+    for (int i = 0; i < n; i++) {
+      vms[i] = new VendingMachine("VM-" + i);
+      assertEquals(i, bank.join(vms[i]));
+    }
+    return vms;
+  }
+
+  private static void sellOut(VendingMachine vm, String id) {
+    vm.getInventory().get(id).setStock(0);
+    vm.onStockChanged(vm.getInventory().get(id));
+  }
+
+  @Test
+  void testNearestMachineWithStock() {
+    MachineBank bank = new MachineBank();
+    VendingMachine[] vms = bankOf(bank, 6);
+    sellOut(vms[2], "B1");
+    sellOut(vms[3], "B1");
+    sellOut(vms[1], "B1");
+
+    // VM-2 左邊最近是 VM-0 (距離 2)，右邊最近是 VM-4 (距離 2)，同距離取左邊
+    assertSame(vms[0], bank.nearestWithStock(vms[2], "B1"));
+    assertSame(vms[4], bank.nearestWithStock(vms[3], "B1"));
+    assertSame(vms[4], bank.nearestWithStock(vms[5], "B1"));
+
+    for (VendingMachine vm : vms) sellOut(vm, "B1");
+    assertNull(bank.nearestWithStock(vms[2], "B1"));
+    assertFalse(bank.anyHasStock("B1"));
+    assertNull(bank.nearestWithStock(vms[2], "ZZ"));
+    assertTrue(bank.anyHasStock("A1"));
+    assertEquals(6, bank.size());
+  }
+
+  @Test
+  void testSelectionRedirectsAndRestockUpdatesIndex() {
+    MachineBank bank = new MachineBank();
+    VendingMachine[] vms = bankOf(bank, 3);
+    sellOut(vms[0], "B1");
+    sellOut(vms[1], "B1");
+
+    vms[0].insertCoin(50);
+    vms[0].selectDrink("B1");
+    assertInstanceOf(SoldOutState.class, vms[0].getCurrentState());
+    assertSame(vms[2], vms[0].getRedirectSuggestion());
+    vms[0].cancel();
+    assertNull(vms[0].getRedirectSuggestion());
+    vms[0].insertCoin(50);
+    vms[0].selectDrink("B1");
+    assertSame(vms[2], vms[0].getRedirectSuggestion());
+    vms[0].cancel();
+    // 成交後也不留著先前的提示
+    vms[1].setRedirectSuggestion(vms[2]);
+    vms[1].insertCoin(50);
+    vms[1].selectDrink("A1");
+    assertNull(vms[1].getRedirectSuggestion());
+
+    // 2 號機透過交易賣光 B1 (庫存 2)
+    for (int i = 0; i < 2; i++) {
+      vms[2].insertCoin(50);
+      vms[2].selectDrink("B1");
+    }
+    assertEquals(0, vms[2].getInventory().get("B1").getStock());
+    assertNull(bank.nearestWithStock(vms[0], "B1"));
+
+    vms[1].enterMaintenance("admin123");
+    vms[1].selectDrink("B1");
+    assertSame(vms[1], bank.nearestWithStock(vms[0], "B1"));
+  }
+
+  @Test
+  void testBankCapacity() {
+    MachineBank bank = new MachineBank();
+    VendingMachine[] vms = bankOf(bank, MachineBank.MAX_MACHINES);
+    assertThrows(IllegalStateException.class, () -> bank.join(new VendingMachine()));
+    sellOut(vms[0], "A1");
+    assertSame(vms[1], bank.nearestWithStock(vms[0], "A1"));
+    assertSame(vms[62], bank.nearestWithStock(vms[63], "A1"));
+  }
+}
@@ -0,0 +1,144 @@
+package com.vending.core;
+
+import com.vending.model.Drink;
+import com.vending.service.StockForecaster;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanogramLoaderTest {
+
+  @Test
+  void testFullPlanogramFromCsvReplacesCatalog(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("planogram.csv");
+    Files.writeString(file, "﻿id, name, price, stock, hot\r\n# 第一排\r\nC1,拿鐵咖啡,45,8,true\r\nC2, 烏龍茶 ,20,0,false\r\n\r\n",
+        StandardCharsets.UTF_8);
+    Planogram p = PlanogramLoader.load(file);
+    assertEquals(Planogram.Kind.FULL, p.getKind());
+    assertEquals(2, p.size());
+
+    VendingMachine vm = new VendingMachine();
+    Map<String, Drink> before = vm.getInventory();
+    p.applyTo(vm);
+    assertNotSame(before, vm.getInventory());
+    assertEquals(3, before.size());
+    assertEquals(2, vm.getInventory().size());
+    assertEquals("烏龍茶", vm.getInventory().get("C2").getName());
+    assertEquals(45, vm.getInventory().get("C1").getPrice());
+    assertTrue(vm.performSystemSelfCheck());
+  }
+
+  @Test
+  void testBinaryRestockIsAtomicAndNotifiesBankAndForecaster(@TempDir Path dir) throws Exception {
+    Path csv = dir.resolve("restock.csv");
+    StringBuilder sb = new StringBuilder("id,stock\n");
+    sb.append("A1,30\nA2,12\n");
+    Files.writeString(csv, sb.toString());
+    Path bin = dir.resolve("restock.plng");
+    Files.write(bin, PlanogramLoader.toBinary(PlanogramLoader.load(csv)));
+    Planogram restock = PlanogramLoader.load(bin);
+    assertEquals(Planogram.Kind.RESTOCK, restock.getKind());
+
+    MachineBank bank = new MachineBank();
+    VendingMachine empty = new VendingMachine("VM-1");
+    VendingMachine other = new VendingMachine("VM-2");
+    empty.getInventory().get("A2").setStock(0);
+    bank.join(empty);
+    bank.join(other);
+    other.getInventory().get("A2").setStock(0);
+    other.onStockChanged(other.getInventory().get("A2"));
+    assertFalse(bank.anyHasStock("A2"));
+
+    StockForecaster forecaster = new StockForecaster(0.3);
+    empty.setStockForecaster(forecaster);
+    Drink oldA1 = empty.getInventory().get("A1");
+    restock.applyTo(empty);
+    assertEquals(30, empty.getInventory().get("A1").getStock());
+    assertEquals(10, oldA1.getStock());
+    assertEquals(2, empty.getInventory().get("B1").getStock());
+    assertSame(empty, bank.nearestWithStock(other, "A2"));
+    // 只有庫存有變的貨道記為補貨
+    assertEquals(12, forecaster.predict("VM-1", "A2").getStock());
+    assertNull(forecaster.predict("VM-1", "B1"));
+
+    // 有一個貨道不存在時整批不套用
+    Files.writeString(csv, "id,stock\nA1,5\nZ9,5\n");
+    Planogram bad = PlanogramLoader.load(csv);
+    assertThrows(IllegalArgumentException.class, () -> bad.applyTo(empty));
+    assertEquals(30, empty.getInventory().get("A1").getStock());
+  }
+
+  @Test
+  void testRestockDuringSalesLosesNoSale(@TempDir Path dir) throws Exception {
+    Path csv = dir.resolve("restock.csv");
+    Files.writeString(csv, "id,stock\nA2,12\n");
+    Planogram restock = PlanogramLoader.load(csv);
+    VendingMachine vm = new VendingMachine();
+    vm.getInventory().get("A1").setStock(15);
+
+    Thread buyer = new Thread(() -> {
+      for (int i = 0; i < 15; i++) {
+        vm.insertCoin(10);
+        vm.insertCoin(10);
+        vm.insertCoin(5);
+        vm.selectDrink("A1");
+      }
+    });
+    buyer.start();
+    // 至少補貨一次，買家執行緒很快跑完時也一樣
+    do {
+      restock.applyTo(vm);
+    } while (buyer.isAlive());
+    buyer.join();
+    // 補貨副本與銷售在同一把鎖內，A1 每一筆扣庫存都留在上線的庫存表
+    assertEquals(0, vm.getInventory().get("A1").getStock());
+    assertEquals(12, vm.getInventory().get("A2").getStock());
+  }
+
+  @Test
+  void testValidationRejectsWholeBatch(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("bad.csv");
+    Files.writeString(file, "id,name,price,stock,hot\nA1,Cola,-1,5,false\nA1,Cola,20,100,maybe\n,X,1,1,true\nB1,Tea,2x,1\n");
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PlanogramLoader.load(file));
+    assertTrue(e.getMessage().contains("第 2 行 price"));
+    assertTrue(e.getMessage().contains("A1 重複"));
+    assertTrue(e.getMessage().contains("第 3 行 hot"));
+    assertTrue(e.getMessage().contains("第 4 行 id"));
+    assertTrue(e.getMessage().contains("第 5 行應有 5 個欄位"));
+
+    Files.writeString(file, "slot,qty\nA1,1\n");
+    assertThrows(IllegalArgumentException.class, () -> PlanogramLoader.load(file));
+    Files.writeString(file, "id,name,price,stock,hot\n");
+    assertThrows(IllegalArgumentException.class, () -> PlanogramLoader.load(file));
+
+    Path bin = dir.resolve("truncated.plng");
+    Files.write(bin, new byte[]{'P', 'L', 'N', 'G', 1, 0, 0, 0, 0, 2, 0, 2, 'A'});
+    assertThrows(IllegalArgumentException.class, () -> PlanogramLoader.load(bin));
+  }
+
+  @Test
+  void testLargeFleetPlanogramRoundTrip(@TempDir Path dir) throws Exception {
+    StringBuilder sb = new StringBuilder("id,name,price,stock,hot\n");
+    for (int i = 0; i < 5_000; i++) sb.append("S").append(i).append(",飲料").append(i).append(',').append(i % 90).append(',').append(i % 99).append(',').append(i % 2 == 0).append('\n');
+    Path csv = dir.resolve("fleet.csv");
+    Files.writeString(csv, sb.toString());
+    Planogram p = PlanogramLoader.load(csv);
+    Path bin = dir.resolve("fleet.plng");
+    Files.write(bin, PlanogramLoader.toBinary(p));
+    Planogram q = PlanogramLoader.load(bin);
+    assertEquals(p.getSlotIds(), q.getSlotIds());
+
+    VendingMachine a = new VendingMachine("VM-A");
+    VendingMachine b = new VendingMachine("VM-B");
+    q.applyTo(a);
+    q.applyTo(b);
+    assertEquals(5_000, a.getInventory().size());
+    assertNotSame(a.getInventory().get("S42"), b.getInventory().get("S42"));
+    assertEquals(42, a.getInventory().get("S42").getStock());
+    assertEquals("飲料4999", b.getInventory().get("S4999").getName());
+  }
+}
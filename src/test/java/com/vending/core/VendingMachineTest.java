@@ -5,6 +5,8 @@ import com.vending.model.Drink;
 import com.vending.service.ChangeService;
 import com.vending.service.DiscountEngine;
 import com.vending.state.*;
+import com.vending.telemetry.SensorTimeSeries;
+import com.vending.telemetry.SensorTimeSeriesStore;
 import com.vending.Main;
 
 import org.junit.jupiter.api.*;
@@ -55,10 +57,7 @@ class VendingMachineTest {
     ChangeService cs = new ChangeService();
 
     // 1. 惜售邏輯
-    Field storageField = ChangeService.class.getDeclaredField("coinStorage");
-    storageField.setAccessible(true);
-    Map<Integer, Integer> storage = (Map<Integer, Integer>) storageField.get(cs);
-    storage.put(10, 3);
+    cs.setCoinCount(10, 3);
     Map<Integer, Integer> res = cs.calculateChange(20);
     assertEquals(1, res.get(10)); assertEquals(2, res.get(5));
 
@@ -110,10 +109,7 @@ class VendingMachineTest {
   void testChangeService_InventoryStates() throws Exception {
     ChangeService cs = new ChangeService();
     cs.calculateChange(60);
-    Field storageField = ChangeService.class.getDeclaredField("coinStorage");
-    storageField.setAccessible(true);
-    Map<Integer, Integer> storage = (Map<Integer, Integer>) storageField.get(cs);
-    storage.put(50, 0); storage.put(10, 2); storage.put(5, 5); storage.put(1, 150);
+    cs.setCoinCount(50, 0); cs.setCoinCount(10, 2); cs.setCoinCount(5, 5); cs.setCoinCount(1, 150);
     cs.auditCoinReserves();
   }
 
@@ -285,4 +281,69 @@ class VendingMachineTest {
     vm.selectDrink("A1");
   }
 
-}
\ No newline at end of file
+  @Test
+  void testSharedModeReusesStatesAcrossMachines() {
+    DiscountEngine fleet = new DiscountEngine();
+    VendingMachine a = VendingMachine.createShared("VM-A", fleet);
+    VendingMachine b = VendingMachine.createShared("VM-B", fleet);
+    assertTrue(a.isShared());
+    assertSame(a.getIdleState(), b.getIdleState());
+    assertSame(a.getSoldState(), b.getSoldState());
+    assertSame(fleet, a.getDiscountEngine());
+    assertSame(fleet, b.getDiscountEngine());
+    // 另一個機隊使用自己的促銷規則
+    VendingMachine other = VendingMachine.createShared("VM-X", new DiscountEngine());
+    assertSame(a.getIdleState(), other.getIdleState());
+    assertNotSame(a.getDiscountEngine(), other.getDiscountEngine());
+    assertThrows(IllegalArgumentException.class, () -> VendingMachine.createShared("VM-Y", null));
+    assertNotSame(a.getChangeService(), b.getChangeService());
+    assertTrue(a.performSystemSelfCheck());
+
+    // 共用狀態仍依帶入的機台各自運作
+    a.insertCoin(50);
+    b.insertCoin(10);
+    a.selectDrink("A1");
+    assertEquals(9, a.getInventory().get("A1").getStock());
+    assertEquals(10, b.getInventory().get("A1").getStock());
+    assertSame(a.getIdleState(), a.getCurrentState());
+    assertEquals(10, b.getBalance());
+    assertSame(b.getHasMoneyState(), b.getCurrentState());
+
+    // 維護狀態延遲建立且各機獨立
+    b.cancel();
+    b.enterMaintenance("admin123");
+    assertInstanceOf(MaintenanceState.class, b.getCurrentState());
+    assertNotSame(a.getMaintenanceState(), b.getMaintenanceState());
+    // 維護狀態綁定單一機台，由其他機台帶入時明確拒絕
+    assertThrows(IllegalStateException.class, () -> b.getCurrentState().cancel(a));
+  }
+
+  @Test
+  void testFleetSensorStoreIsReusedAfterRelease() {
+    SensorTimeSeriesStore store = SensorTimeSeriesStore.lazy(
+        4, MaintenanceState.SENSOR_RAW, MaintenanceState.SENSOR_MINUTES, MaintenanceState.SENSOR_HOURS);
+    DiscountEngine fleet = new DiscountEngine();
+    VendingMachine a = VendingMachine.createShared("VM-A", fleet);
+    a.setSensorStore(store);
+    a.getMaintenanceState().updateSensors(1_000L, 130, 5, 90);
+    assertEquals(1, store.size());
+    assertEquals(130, a.getMaintenanceState().getCurrentVoltage());
+    assertEquals(130, a.getMaintenanceState().getSensorHistory()
+        .window(SensorTimeSeries.VOLTAGE, 10, 1_000L).getMax());
+
+    // 下線後切片歸還倉庫，下一台機台取得的是空的歷史
+    a.getMaintenanceState().releaseSensorHistory();
+    assertEquals(0, store.size());
+    VendingMachine b = VendingMachine.createShared("VM-B", fleet);
+    b.setSensorStore(store);
+    assertTrue(b.getMaintenanceState().getSensorHistory()
+        .window(SensorTimeSeries.VOLTAGE, 10, 1_000L).isEmpty());
+    assertEquals(1, store.size());
+
+    // 沒有機隊倉庫的機台各自配置
+    VendingMachine solo = new VendingMachine("VM-S");
+    solo.getMaintenanceState().updateSensors(1_000L, 110, 4, 98);
+    assertEquals(1, solo.getMaintenanceState().getSensorHistory().getSampleCount());
+    assertEquals(1, store.size());
+  }
+}
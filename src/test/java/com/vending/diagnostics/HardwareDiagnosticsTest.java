@@ -0,0 +1,93 @@
+package com.vending.diagnostics;
+
+import com.vending.core.VendingMachine;
+import com.vending.state.MaintenanceState;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HardwareDiagnosticsTest {
+
+  private static SubsystemProbe sleeping(String name, long millis, Duration timeout) {
+    return new SubsystemProbe() {
+      @Override public String getName() { return name; }
+
+      @Override
+      public ProbeResult probe() throws InterruptedException {
+        Thread.sleep(millis);
+        return ProbeResult.ok(name, "OK");
+      }
+
+      @Override public Duration getTimeout() { return timeout; }
+    };
+  }
+
+  @Test
+  void testProbesRunInParallelWithTimeouts() {
+    List<SubsystemProbe> probes = new ArrayList<>();
+    for (int i = 0; i < 20; i++) probes.add(sleeping("SLOT:" + i, 200, null));
+    probes.add(sleeping("DISPENSER_MOTOR", 10_000, Duration.ofMillis(300)));
+    probes.add(new SubsystemProbe() {
+      @Override public String getName() { return "COIN_MECH"; }
+      @Override public ProbeResult probe() { throw new IllegalStateException("感測器無回應"); }
+    });
+
+    DiagnosticReport report = new HardwareDiagnostics(Duration.ofSeconds(5)).run(probes);
+    // 20 × 200ms 依序執行需 4 秒，平行應遠小於此
+    assertTrue(report.getElapsedMillis() < 2_000, "elapsed " + report.getElapsedMillis());
+    assertEquals(ProbeResult.Status.OK, report.get("SLOT:7").getStatus());
+    assertEquals(ProbeResult.Status.TIMEOUT, report.get("DISPENSER_MOTOR").getStatus());
+    assertEquals(ProbeResult.Status.FAILED, report.get("COIN_MECH").getStatus());
+    assertTrue(report.get("COIN_MECH").getMessage().contains("感測器無回應"));
+    assertFalse(report.isHealthy());
+    assertNull(report.get("NOPE"));
+    assertEquals(22, report.getResults().size());
+  }
+
+  @Test
+  void testTimedOutProbesHaveStoppedWhenRunReturns() {
+    AtomicBoolean released = new AtomicBoolean();
+    SubsystemProbe slow = new SubsystemProbe() {
+      @Override public String getName() { return "COOLING_SYSTEM"; }
+
+      @Override
+      public ProbeResult probe() throws InterruptedException {
+        try {
+          Thread.sleep(10_000);
+        } finally {
+          // 收到中斷後仍需一點時間釋放硬體
+          long until = System.nanoTime() + 50_000_000L;
+          while (System.nanoTime() < until) Thread.onSpinWait();
+          released.set(true);
+        }
+        return ProbeResult.ok("COOLING_SYSTEM", "OK");
+      }
+
+      @Override public Duration getTimeout() { return Duration.ofMillis(100); }
+    };
+    DiagnosticReport report = new HardwareDiagnostics(Duration.ofSeconds(5)).run(List.of(slow));
+    assertEquals(ProbeResult.Status.TIMEOUT, report.get("COOLING_SYSTEM").getStatus());
+    assertTrue(released.get());
+  }
+
+  @Test
+  void testMaintenanceStateUsesPluggableProbes() {
+    VendingMachine vm = new VendingMachine();
+    MaintenanceState ms = (MaintenanceState) vm.getMaintenanceState();
+    ms.dispense();
+    DiagnosticReport report = ms.getLastReport();
+    assertTrue(report.isHealthy());
+    assertEquals(5 + vm.getInventory().size(), report.getResults().size());
+    assertEquals("電壓穩定", report.get("POWER_UNIT").getMessage());
+
+    ms.setSubsystemProbes(List.of(sleeping("POWER_UNIT", 0, null)));
+    ms.setSlotProbeFactory(d -> sleeping("MOTOR:" + d.getId(), 0, null));
+    ms.setDiagnostics(new HardwareDiagnostics(Duration.ofMillis(500)));
+    ms.dispense();
+    assertEquals(ProbeResult.Status.OK, ms.getLastReport().get("MOTOR:A1").getStatus());
+    assertEquals(1 + vm.getInventory().size(), ms.getLastReport().getResults().size());
+  }
+}
@@ -0,0 +1,101 @@
+package com.vending.http;
+
+import com.vending.core.VendingMachine;
+import com.vending.model.Drink;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class VendingHttpServerTest {
+  private VendingMachine vm;
+  private VendingHttpServer server;
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    vm = new VendingMachine();
+    server = new VendingHttpServer(vm, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() { server.stop(); }
+
+  private HttpResponse<String> send(String method, String path) throws Exception {
+    HttpRequest req = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+        .method(method, HttpRequest.BodyPublishers.noBody()).build();
+    return client.send(req, HttpResponse.BodyHandlers.ofString());
+  }
+
+  @Test
+  void testReadEndpoints() throws Exception {
+    HttpResponse<String> inv = send("GET", "/inventory");
+    assertEquals(200, inv.statusCode());
+    assertTrue(inv.body().contains("\"id\":\"A1\""));
+
+    assertEquals("{\"balance\":0}", send("GET", "/balance").body());
+    assertTrue(send("GET", "/state").body().contains("IdleState"));
+
+    HttpResponse<String> quote = send("GET", "/quote?id=A1&balance=30");
+    assertTrue(quote.body().contains("\"finalPrice\":" + vm.getDiscountEngine().applyPromotion(vm.getInventory().get("A1"), 30, false)));
+    assertEquals(404, send("GET", "/quote?id=ZZ").statusCode());
+    assertEquals(405, send("POST", "/balance").statusCode());
+  }
+
+  @Test
+  void testRemotePurchase() throws Exception {
+    HttpResponse<String> ok = send("POST", "/purchase?id=A1&coins=10,10,10");
+    assertEquals(200, ok.statusCode());
+    assertTrue(ok.body().contains("\"success\":true"));
+    assertEquals(9, vm.getInventory().get("A1").getStock());
+    assertEquals(0, vm.getBalance());
+
+    HttpResponse<String> poor = send("POST", "/purchase?id=B1&coins=5,3");
+    assertEquals(409, poor.statusCode());
+    assertTrue(poor.body().contains("\"refund\":8"));
+    assertEquals(0, vm.getBalance());
+    assertSame(vm.getIdleState(), vm.getCurrentState());
+
+    // 現場顧客投幣中，遠端購買不可動用其餘額
+    vm.insertCoin(50);
+    HttpResponse<String> busy = send("POST", "/purchase?id=A1&coins=10,10,10");
+    assertEquals(409, busy.statusCode());
+    assertEquals(50, vm.getBalance());
+    assertEquals(9, vm.getInventory().get("A1").getStock());
+    vm.cancel();
+
+    assertEquals(400, send("POST", "/purchase?id=A1&coins=x").statusCode());
+    assertEquals(405, send("GET", "/purchase?id=A1").statusCode());
+  }
+
+  @Test
+  void testRouteFailureReturnsJson500() throws Exception {
+    Map<String, Drink> broken = new HashMap<>(vm.getInventory());
+    broken.put(null, new Drink(null, "壞資料", 1, 1, false));
+    vm.replaceInventory(broken);
+    HttpResponse<String> res = send("GET", "/inventory");
+    assertEquals(500, res.statusCode());
+    assertTrue(res.body().startsWith("{\"error\":"));
+    // 連線與鎖都沒有被卡住
+    assertEquals(200, send("GET", "/balance").statusCode());
+  }
+
+  @Test
+  void testConcurrentReads() throws Exception {
+    var futures = new java.util.ArrayList<java.util.concurrent.CompletableFuture<HttpResponse<String>>>();
+    for (int i = 0; i < 200; i++) {
+      HttpRequest req = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + "/inventory")).build();
+      futures.add(client.sendAsync(req, HttpResponse.BodyHandlers.ofString()));
+    }
+    for (var f : futures) assertEquals(200, f.get().statusCode());
+  }
+}
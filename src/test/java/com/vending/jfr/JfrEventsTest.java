@@ -0,0 +1,99 @@
+package com.vending.jfr;
+
+import com.vending.core.VendingMachine;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+  private static final String[] EVENTS = {
+      "com.vending.CoinInserted", "com.vending.DrinkSelected", "com.vending.StateTransition",
+      "com.vending.PromotionEvaluated", "com.vending.ChangeCalculated", "com.vending.MaintenanceAction"};
+
+  @Test
+  void testTransactionLifecycleIsRecorded(@TempDir Path dir) throws Exception {
+    VendingMachine vm = new VendingMachine("VM-JFR");
+    Path file = dir.resolve("vending.jfr");
+    try (Recording recording = new Recording()) {
+      for (String name : EVENTS) recording.enable(name).withThreshold(Duration.ZERO);
+      recording.start();
+      vm.insertCoin(50);
+      vm.selectDrink("A1");
+      vm.enterMaintenance("admin123");
+      vm.selectDrink("A2");
+      vm.cancel();
+      recording.stop();
+      recording.dump(file);
+    }
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+        .filter(e -> "VM-JFR".equals(e.getString("machineId")))
+        .collect(Collectors.toList());
+    for (String name : EVENTS) {
+      assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals(name)), name);
+    }
+
+    RecordedEvent promotion = find(events, "com.vending.PromotionEvaluated");
+    assertEquals("A1", promotion.getString("drinkId"));
+    assertEquals(25, promotion.getInt("finalPrice"));
+    assertEquals(50, promotion.getInt("balance"));
+
+    RecordedEvent change = find(events, "com.vending.ChangeCalculated");
+    assertEquals(25, change.getInt("requested"));
+    assertEquals(25, change.getInt("paid"));
+    assertTrue(change.getBoolean("success"));
+
+    List<String> transitions = events.stream()
+        .filter(e -> e.getEventType().getName().equals("com.vending.StateTransition"))
+        .map(e -> e.getString("from") + "->" + e.getString("to"))
+        .collect(Collectors.toList());
+    assertEquals(List.of("IdleState->HasMoneyState", "HasMoneyState->SoldState", "SoldState->IdleState",
+        "IdleState->MaintenanceState", "MaintenanceState->IdleState"), transitions);
+
+    List<String> actions = events.stream()
+        .filter(e -> e.getEventType().getName().equals("com.vending.MaintenanceAction"))
+        .map(e -> e.getString("action"))
+        .collect(Collectors.toList());
+    assertEquals(List.of("RESTOCK", "EXIT"), actions);
+  }
+
+  @Test
+  void testEventsAreSkippedWhenDisabled(@TempDir Path dir) throws Exception {
+    // 未開啟錄製時 shouldCommit 為 false，不會填值也不會提交
+    assertFalse(new CoinInsertedEvent().shouldCommit());
+
+    // 錄製中只開啟狀態轉換；其餘事件關閉或門檻過高時，機台不應送出
+    VendingMachine vm = new VendingMachine("VM-OFF");
+    Path file = dir.resolve("disabled.jfr");
+    try (Recording recording = new Recording()) {
+      for (String name : EVENTS) recording.disable(name);
+      recording.enable("com.vending.StateTransition").withThreshold(Duration.ZERO);
+      recording.enable("com.vending.DrinkSelected").withThreshold(Duration.ofHours(1));
+      recording.start();
+      vm.insertCoin(50);
+      vm.selectDrink("A1");
+      vm.insertCoin(10);
+      vm.cancel();
+      recording.stop();
+      recording.dump(file);
+    }
+    assertEquals(0, vm.getBalance());
+    List<String> names = RecordingFile.readAllEvents(file).stream()
+        .filter(e -> e.getEventType().getName().startsWith("com.vending."))
+        .filter(e -> "VM-OFF".equals(e.getString("machineId")))
+        .map(e -> e.getEventType().getName())
+        .distinct()
+        .collect(Collectors.toList());
+    assertEquals(List.of("com.vending.StateTransition"), names);
+  }
+
+  private static RecordedEvent find(List<RecordedEvent> events, String name) {
+    return events.stream().filter(e -> e.getEventType().getName().equals(name)).findFirst().orElseThrow();
+  }
+}
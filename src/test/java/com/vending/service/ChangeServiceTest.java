@@ -4,6 +4,11 @@ import com.vending.service.ChangeService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.*;
 
 class ChangeServiceTest {
@@ -83,4 +88,59 @@ class ChangeServiceTest {
     cs.calculateChange(15);
     // 剩餘 15 元 -> 觸發 "else if (amount >= 10)"
   }
-}
\ No newline at end of file
+
+  @Test
+  @DisplayName("找零失敗時整筆回滾，不可扣走任何硬幣")
+  void testRollbackWhenExactChangeFails() {
+    ChangeService cs = new ChangeService();
+    cs.setCoinCount(1, 0);
+    Map<Integer, Integer> result = cs.calculateChange(13);
+    assertTrue(result.isEmpty());
+    assertEquals(5, cs.getCoinCount(50));
+    assertEquals(20, cs.getCoinCount(10));
+    assertEquals(20, cs.getCoinCount(5));
+    assertEquals(0, cs.getCoinCount(1));
+    assertThrows(IllegalArgumentException.class, () -> cs.setCoinCount(2, 1));
+    assertEquals(0, cs.getCoinCount(2));
+  }
+
+  @Test
+  @DisplayName("並行找零：共用硬幣盒不可重複動用硬幣")
+  void testConcurrentPayoutNeverDoubleSpends() throws Exception {
+    ChangeService cs = new ChangeService();
+    cs.setCoinCount(50, 0);
+    cs.setCoinCount(10, 0);
+    cs.setCoinCount(5, 0);
+    cs.setCoinCount(1, 1000);
+    int threads = 8;
+    AtomicInteger paidOut = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      pool.submit(() -> {
+        start.await();
+        for (int i = 0; i < 100; i++) {
+          Map<Integer, Integer> r = cs.calculateChange(3);
+          paidOut.addAndGet(r.getOrDefault(1, 0));
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+    // 每次 3 枚，1000 枚最多成功 333 次
+    assertEquals(999, paidOut.get());
+    assertEquals(1, cs.getCoinCount(1));
+  }
+
+  @Test
+  void testCompactStorageBehavesLikePadded() {
+    ChangeService padded = new ChangeService();
+    ChangeService compact = new ChangeService(false);
+    for (int amount : new int[]{0, 1, 7, 36, 66, 99, 250, 400}) {
+      assertEquals(padded.calculateChange(amount), compact.calculateChange(amount), "amount " + amount);
+    }
+    for (int coin : new int[]{50, 10, 5, 1}) assertEquals(padded.getCoinCount(coin), compact.getCoinCount(coin));
+  }
+}
@@ -0,0 +1,63 @@
+package com.vending.service;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoinRefillOptimizerTest {
+  private final CoinRefillOptimizer optimizer = new CoinRefillOptimizer();
+
+  @Test
+  void testRefillRemovesFailuresWithinBudget() {
+    int[] demand = new int[40];
+    for (int i = 0; i < demand.length; i++) demand[i] = i % 2 == 0 ? 3 : 7;
+    CoinRefillOptimizer.MachineDemand m = new CoinRefillOptimizer.MachineDemand("VM-1", new int[]{5, 20, 2, 0}, demand, 500);
+
+    CoinRefillOptimizer.RefillPlan plan = optimizer.optimize(m);
+    assertEquals(40, plan.getFailuresBefore());
+    assertEquals(0, plan.getFailuresAfter());
+    assertTrue(plan.getCost() <= 500);
+    assertTrue(plan.getCoins(1) > 0);
+    assertEquals(0, plan.getCoins(50));
+    assertEquals(0, plan.getCoins(2));
+    assertTrue(plan.toString().startsWith("VM-1: "));
+  }
+
+  @Test
+  void testBudgetLimitsAndHealthyMachines() {
+    int[] demand = new int[100];
+    Arrays.fill(demand, 4);
+    CoinRefillOptimizer.RefillPlan tight = optimizer.optimize(
+        new CoinRefillOptimizer.MachineDemand("VM-T", new int[]{0, 0, 0, 0}, demand, 40));
+    assertTrue(tight.getCost() <= 40);
+    assertTrue(tight.getFailuresAfter() < tight.getFailuresBefore());
+    assertTrue(tight.getFailuresAfter() > 0);
+
+    CoinRefillOptimizer.RefillPlan healthy = optimizer.optimize(CoinRefillOptimizer.MachineDemand.of(
+        "VM-H", new ChangeService(), new int[]{5, 15, 66}, 1000));
+    assertEquals(0, healthy.getFailuresBefore());
+    assertEquals(0, healthy.getCost());
+    assertThrows(IllegalArgumentException.class,
+        () -> new CoinRefillOptimizer.MachineDemand("X", new int[3], new int[0], 0));
+  }
+
+  @Test
+  void testFleetIsSolvedInParallelAndKeepsOrder() {
+    List<CoinRefillOptimizer.MachineDemand> fleet = new ArrayList<>();
+    for (int m = 0; m < 200; m++) {
+      int[] demand = new int[50];
+      for (int i = 0; i < demand.length; i++) demand[i] = (i * 7 + m) % 60;
+      fleet.add(new CoinRefillOptimizer.MachineDemand("VM-" + m, new int[]{1, 3, 3, 5}, demand, 800));
+    }
+    List<CoinRefillOptimizer.RefillPlan> plans = optimizer.optimize(fleet);
+    assertEquals(200, plans.size());
+    for (int m = 0; m < 200; m++) {
+      CoinRefillOptimizer.RefillPlan p = plans.get(m);
+      assertEquals("VM-" + m, p.getMachineId());
+      assertTrue(p.getFailuresAfter() <= p.getFailuresBefore());
+      assertTrue(p.getCost() <= 800);
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.vending.service;
+
+import com.vending.model.Drink;
+import org.junit.jupiter.api.Test;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedPointPricingTest {
+
+  /** 改寫前 DiscountEngine 以 double 計價的版本，作為對照。 */
+  private static int legacyPrice(int category, int originalPrice, int stock, int currentBalance,
+                                 boolean isVip, int luck, int memberScore) {
+    double finalPrice = originalPrice;
+    if (category == FixedPointPricing.CATEGORY_COFFEE) {
+      if (isVip) finalPrice *= 0.85;
+    } else if (category == FixedPointPricing.CATEGORY_TEA) {
+      if (currentBalance > 50) finalPrice -= 5;
+    }
+    if (stock > 15) {
+      if (originalPrice > 30) finalPrice -= 5;
+      else finalPrice -= 2;
+    }
+    if (currentBalance > 100 || originalPrice > 40) {
+      if (!isVip) {
+        if (finalPrice >= originalPrice - 2) finalPrice -= 5;
+      } else {
+        finalPrice -= 10;
+      }
+    }
+    if (luck > 10) finalPrice -= 1;
+    if (memberScore > 100) {
+      finalPrice -= 1;
+    } else if (memberScore < 0) {
+      finalPrice = Math.max(finalPrice, originalPrice - 2);
+    }
+    int result = (int) finalPrice;
+    if (result < 0) result = 0;
+    return result;
+  }
+
+  @Test
+  void testMatchesLegacyDoubleArithmeticExactly() {
+    FixedPointPricing fp = FixedPointPricing.WHOLE_UNITS;
+    int[] stocks = {0, 15, 16};
+    int[] balances = {0, 50, 51, 100, 101};
+    int[] lucks = {0, 11};
+    int[] scores = {-10, 0, 150};
+    for (int price = -20; price <= 5_000; price++) {
+      for (int category = 0; category <= 2; category++) {
+        for (int stock : stocks) {
+          for (int balance : balances) {
+            for (boolean vip : new boolean[]{true, false}) {
+              for (int luck : lucks) {
+                for (int score : scores) {
+                  int expected = legacyPrice(category, price, stock, balance, vip, luck, score);
+                  int actual = fp.price(category, price, stock, balance, vip, luck, score);
+                  if (expected != actual) {
+                    fail(price + "/" + category + "/" + stock + "/" + balance + "/" + vip + "/" + luck + "/" + score
+                        + ": " + expected + " != " + actual);
+                  }
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void testEngineAndServiceKeepTheirResults() {
+    DiscountEngine de = new DiscountEngine();
+    assertEquals(33, de.applyPromotion(new Drink("C", "Latte Coffee", 40, 5, true), 50, true));
+    assertEquals(28, de.applyPromotion(new Drink("X", "Water", 30, 5, false), 101, false));
+
+    Random rnd = new Random(42);
+    for (int i = 0; i < 200_000; i++) {
+      int total = rnd.nextInt(2_000_000) - 1_000;
+      assertEquals((int) (total * 0.9), FixedPointPricing.multiBuy(total), "total=" + total);
+    }
+    assertEquals(180, new DiscountService().getDiscountedPrice(new Drink("C", "Cola", 100, 10, true), 2));
+  }
+
+  @Test
+  void testCentsCurrencyAndBulkPricing() {
+    FixedPointPricing cents = new FixedPointPricing(100);
+    // 41.00 的 VIP 咖啡：85 折 = 34.85，邊界規則再減 10.00
+    assertEquals(2485, cents.price(FixedPointPricing.CATEGORY_COFFEE, 4100, 5, 0, true, 0, 0));
+    // 以元計價時同一筆會被截斷為 24
+    assertEquals(24, FixedPointPricing.WHOLE_UNITS.price(FixedPointPricing.CATEGORY_COFFEE, 41, 5, 0, true, 0, 0));
+    // 茶類餘額門檻 50.00 也依最小單位放大
+    assertEquals(1500, cents.price(FixedPointPricing.CATEGORY_TEA, 2000, 5, 5001, false, 0, 0));
+    assertEquals(2000, cents.price(FixedPointPricing.CATEGORY_TEA, 2000, 5, 5000, false, 0, 0));
+
+    int n = 1_000;
+    int[] categories = new int[n];
+    int[] prices = new int[n];
+    int[] stocks = new int[n];
+    int[] balances = new int[n];
+    boolean[] vip = new boolean[n];
+    int[] lucks = new int[n];
+    int[] scores = new int[n];
+    Random rnd = new Random(7);
+    for (int i = 0; i < n; i++) {
+      categories[i] = rnd.nextInt(3);
+      prices[i] = rnd.nextInt(200);
+      stocks[i] = rnd.nextInt(30);
+      balances[i] = rnd.nextInt(200);
+      vip[i] = rnd.nextBoolean();
+      lucks[i] = rnd.nextInt(20);
+      scores[i] = rnd.nextInt(300) - 100;
+    }
+    int[] out = new int[n];
+    FixedPointPricing.WHOLE_UNITS.priceAll(categories, prices, stocks, balances, vip, lucks, scores, out);
+    for (int i = 0; i < n; i++) {
+      assertEquals(legacyPrice(categories[i], prices[i], stocks[i], balances[i], vip[i], lucks[i], scores[i]), out[i]);
+    }
+    assertThrows(IllegalArgumentException.class,
+        () -> FixedPointPricing.WHOLE_UNITS.priceAll(categories, prices, stocks, balances, vip, lucks, scores, new int[1]));
+    assertThrows(IllegalArgumentException.class, () -> new FixedPointPricing(0));
+  }
+}
@@ -0,0 +1,64 @@
+package com.vending.service;
+
+import com.vending.core.VendingMachine;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FraudDetectorTest {
+  private final AtomicLong now = new AtomicLong(1_000_000L);
+  private final List<String> alerts = new ArrayList<>();
+  private final FraudDetector detector = new FraudDetector(60_000L, 6, now::get,
+      (id, signal, detail) -> alerts.add(id + ":" + signal));
+
+  @Test
+  void testInsertCancelLoopFlagged() {
+    VendingMachine vm = new VendingMachine("VM-X");
+    vm.setFraudDetector(detector);
+    for (int i = 0; i < 4; i++) {
+      vm.insertCoin(10);
+      vm.cancel();
+    }
+    assertTrue(alerts.isEmpty());
+    vm.insertCoin(10);
+    vm.cancel();
+    assertEquals(List.of("VM-X:INSERT_CANCEL_LOOP"), alerts);
+
+    // 同一個時間桶內不重複告警
+    vm.insertCoin(10);
+    vm.cancel();
+    assertEquals(1, alerts.size());
+  }
+
+  @Test
+  void testSalesOffsetCancels() {
+    for (int i = 0; i < 3; i++) detector.onSale("M");
+    for (int i = 0; i < 9; i++) detector.onCancel("M", 10);
+    assertTrue(alerts.isEmpty());
+    detector.onCancel("M", 10);
+    assertEquals(List.of("M:INSERT_CANCEL_LOOP"), alerts);
+  }
+
+  @Test
+  void testWindowExpires() {
+    for (int i = 0; i < 4; i++) detector.onCancel("M", 10);
+    now.addAndGet(120_000L);
+    detector.onCancel("M", 10);
+    assertTrue(alerts.isEmpty());
+  }
+
+  @Test
+  void testDenominationSkew() {
+    // 機隊基準：各面額平均
+    for (int i = 0; i < 100; i++) {
+      for (int d : new int[]{1, 5, 10, 50}) detector.onCoinInserted("normal-" + (i % 10), d);
+    }
+    assertTrue(alerts.isEmpty());
+    for (int i = 0; i < 20; i++) detector.onCoinInserted("suspect", 50);
+    assertEquals(List.of("suspect:DENOMINATION_SKEW"), alerts);
+    detector.onCoinInserted("suspect", 7);
+    assertEquals(1, alerts.size());
+  }
+}
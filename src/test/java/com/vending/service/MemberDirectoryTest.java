@@ -0,0 +1,103 @@
+package com.vending.service;
+
+import com.vending.core.VendingMachine;
+import com.vending.model.Drink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberDirectoryTest {
+
+  @Test
+  void testLoadFromFile(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("members.csv");
+    Files.writeString(file, "# 卡號,vip,分數\n1001,true,180\n\n1002, false , -20\n1001,false,50\n");
+    MemberDirectory members = MemberDirectory.load(file);
+    assertEquals(2, members.size());
+    // 重複卡號以後出現者為準
+    int slot = members.indexOf(1001);
+    assertFalse(members.isVipAt(slot));
+    assertEquals(50, members.scoreAt(slot));
+    assertEquals(-20, members.scoreAt(members.indexOf(1002)));
+    assertFalse(members.contains(1003));
+    assertFalse(members.contains(0));
+
+    Files.writeString(file, "1001,true\n");
+    assertThrows(IllegalArgumentException.class, () -> MemberDirectory.load(file));
+    Files.writeString(file, "1001,yes,3\n");
+    assertThrows(IllegalArgumentException.class, () -> MemberDirectory.load(file));
+    Files.writeString(file, "abc,true,3\n");
+    assertThrows(IllegalArgumentException.class, () -> MemberDirectory.load(file));
+    Files.writeString(file, "-5,true,3\n");
+    assertThrows(IllegalArgumentException.class, () -> MemberDirectory.load(file));
+  }
+
+  @Test
+  void testMatchesHashMapOnRandomIds() {
+    Random rnd = new Random(40);
+    int n = 200_000;
+    long[] ids = new long[n];
+    boolean[] vip = new boolean[n];
+    int[] scores = new int[n];
+    Map<Long, Integer> expected = new HashMap<>();
+    for (int i = 0; i < n; i++) {
+      ids[i] = (rnd.nextLong() >>> 1) | 1;
+      vip[i] = rnd.nextBoolean();
+      scores[i] = rnd.nextInt(2000) - 1000;
+      expected.put(ids[i], scores[i]);
+    }
+    MemberDirectory members = MemberDirectory.of(ids, vip, scores);
+    assertEquals(expected.size(), members.size());
+    for (int i = 0; i < n; i++) {
+      int slot = members.indexOf(ids[i]);
+      assertTrue(slot >= 0);
+      assertEquals((int) expected.get(ids[i]), members.scoreAt(slot));
+    }
+    int hits = 0;
+    for (int i = 0; i < n; i++) {
+      long id = (rnd.nextLong() >>> 1) | 1;
+      if (members.contains(id) != expected.containsKey(id)) fail("查詢結果不一致: " + id);
+      if (members.contains(id)) hits++;
+    }
+    assertEquals(0, hits);
+  }
+
+  @Test
+  void testMemberPricingDuringCheckout() {
+    MemberDirectory members = MemberDirectory.of(new long[]{42, 7}, new boolean[]{true, false}, new int[]{150, 120});
+    VendingMachine vm = new VendingMachine();
+    vm.setMemberDirectory(members);
+    vm.getInventory().put("C1", new Drink("C1", "Latte Coffee", 40, 5, true));
+
+    // 非會員維持原本計價：40 元
+    vm.insertCoin(50);
+    vm.selectDrink("C1");
+    assertEquals(10, sum(vm.getLastChange()));
+
+    // VIP 會員 (分數 150)：85 折再少 1 元 = 33 元
+    vm.insertCoin(50);
+    vm.identifyMember(42);
+    vm.selectDrink("C1");
+    assertEquals(17, sum(vm.getLastChange()));
+    assertEquals(0, vm.getCurrentMemberId());
+
+    // 一般會員分數 > 100 少 1 元；查無此卡號時視為非會員
+    Drink latte = vm.getInventory().get("C1");
+    assertEquals(39, vm.getDiscountEngine().applyPromotion(latte, 50, false, 120));
+    vm.insertCoin(50);
+    vm.identifyMember(99);
+    vm.selectDrink("C1");
+    assertEquals(10, sum(vm.getLastChange()));
+  }
+
+  private static int sum(Map<Integer, Integer> change) {
+    int total = 0;
+    for (Map.Entry<Integer, Integer> e : change.entrySet()) total += e.getKey() * e.getValue();
+    return total;
+  }
+}
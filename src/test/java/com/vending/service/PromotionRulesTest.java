@@ -0,0 +1,146 @@
+package com.vending.service;
+
+import com.vending.model.Drink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionRulesTest {
+
+  @Test
+  void testDefaultRulesMatchBuiltInEngine() {
+    DiscountEngine builtIn = new DiscountEngine();
+    DiscountEngine dsl = new DiscountEngine();
+    dsl.setRules(PromotionRules.loadDefault());
+
+    String[] names = {"Latte Coffee", "Ice Tea", "A_Lucky_8!", "Water", null, "Abcdefg8"};
+    int[] prices = {0, 10, 19, 20, 25, 30, 35, 40, 41, 50, 77, 88};
+    int[] stocks = {0, 1, 2, 10, 15, 16, 30};
+    int[] balances = {0, 1, 49, 51, 60, 100, 101, 150, 333};
+    for (String name : names) {
+      for (int price : prices) {
+        for (int stock : stocks) {
+          for (boolean hot : new boolean[]{true, false}) {
+            Drink d = new Drink("X", name, price, stock, hot);
+            for (int balance : balances) {
+              for (boolean vip : new boolean[]{true, false}) {
+                assertEquals(builtIn.applyPromotion(d, balance, vip), dsl.applyPromotion(d, balance, vip),
+                    name + "/" + price + "/" + stock + "/" + hot + "/" + balance + "/" + vip);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void testExpressionsAndActions() {
+    DiscountEngine de = new DiscountEngine();
+    Drink d = new Drink("D", "Tea", 40, 3, false);
+    de.setRules(PromotionRules.compile("when true then set price * 2 - (10 / 2)\nwhen not (final < 70) then min 60"));
+    assertEquals(60, de.applyPromotion(d, 0, false));
+    de.setRules(PromotionRules.compile("when category != 'TEA' or stock == 3 then sub -price"));
+    assertEquals(80, de.applyPromotion(d, 0, false));
+    de.setRules(PromotionRules.compile("# 空規則\n"));
+    assertEquals(40, de.applyPromotion(d, 0, false));
+    de.setRules(PromotionRules.compile("when vip then sub 100"));
+    assertEquals(0, de.applyPromotion(d, 0, true));
+    de.setRules(null);
+    assertEquals(new DiscountEngine().applyPromotion(d, 0, true), de.applyPromotion(d, 0, true));
+  }
+
+  @Test
+  void testRulesUseFixedPointRounding() {
+    DiscountEngine de = new DiscountEngine();
+    // 0.1 × 3 以 double 計算為 0.30000000000000004，定點數則剛好 0.3
+    Drink d = new Drink("D", "Water", 10, 3, false);
+    de.setRules(PromotionRules.compile("when 0.1 * 3 == 0.3 then set 7"));
+    assertEquals(7, de.applyPromotion(d, 0, false));
+    // 29 打 85 折與內建的萬分點計價相同，向零截斷
+    Drink coffee = new Drink("C", "Coffee", 29, 3, false);
+    de.setRules(PromotionRules.compile("when true then mul 0.85"));
+    assertEquals(FixedPointPricing.applyBps(29, FixedPointPricing.COFFEE_VIP_BPS), de.applyPromotion(coffee, 0, false));
+    // 除以 0 得 0，不會在計價時丟出例外
+    de.setRules(PromotionRules.compile("when true then set price / (stock - 3)"));
+    assertEquals(0, de.applyPromotion(d, 0, false));
+    // 引號內的 # 不是註解
+    Drink hash = new Drink("H", "#1", 10, 3, false);
+    de.setRules(PromotionRules.compile("when category != 'A#B' then sub 1 # 註解"));
+    assertEquals(9, de.applyPromotion(hash, 0, false));
+    assertThrows(IllegalArgumentException.class, () -> PromotionRules.compile("when true then mul 0.00001"));
+  }
+
+  @Test
+  void testCompileErrors() {
+    assertThrows(IllegalArgumentException.class, () -> PromotionRules.compile("when price then sub 1"));
+    assertThrows(IllegalArgumentException.class, () -> PromotionRules.compile("when vip then sub 'A'"));
+    assertThrows(IllegalArgumentException.class, () -> PromotionRules.compile("when vip then jump 1"));
+    assertThrows(IllegalArgumentException.class, () -> PromotionRules.compile("when vip then sub 1 2"));
+    assertThrows(IllegalArgumentException.class, () -> PromotionRules.compile("when category > 'A' then sub 1"));
+    assertThrows(IllegalArgumentException.class, () -> PromotionRules.compile("when nothing then sub 1"));
+    assertThrows(IllegalArgumentException.class, () -> PromotionRules.compile("when vip then sub 1 $"));
+    assertThrows(IllegalArgumentException.class, () -> PromotionRules.compile("when category == 'A then sub 1"));
+    assertThrows(IllegalArgumentException.class, () -> PromotionRules.compile("when (vip then sub 1"));
+    assertThrows(IllegalArgumentException.class, () -> PromotionRules.compile("when vip then"));
+  }
+
+  @Test
+  void testHotReload(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("rules.txt");
+    Files.writeString(file, "when true then sub 1");
+    DiscountEngine de = new DiscountEngine();
+    PromotionRuleLoader loader = new PromotionRuleLoader(file, de::setRules);
+    Drink d = new Drink("D", "D", 30, 5, false);
+
+    assertTrue(loader.reloadIfChanged());
+    assertEquals(29, de.applyPromotion(d, 0, false));
+    assertFalse(loader.reloadIfChanged());
+
+    Files.writeString(file, "when true then sub");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+    assertFalse(loader.reloadIfChanged());
+    assertEquals(29, de.applyPromotion(d, 0, false));
+
+    Files.writeString(file, "when true then sub 3");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+    assertTrue(loader.reloadIfChanged());
+    assertEquals(27, de.applyPromotion(d, 0, false));
+
+    // 修改時間與長度都不變的修改也要重新載入
+    FileTime stamp = Files.getLastModifiedTime(file);
+    Files.writeString(file, "when true then sub 4");
+    Files.setLastModifiedTime(file, stamp);
+    assertTrue(loader.reloadIfChanged());
+    assertEquals(26, de.applyPromotion(d, 0, false));
+  }
+
+  @Test
+  void testScheduledReloadOnTimerWheel(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("rules.txt");
+    Files.writeString(file, "when true then sub 1");
+    AtomicLong now = new AtomicLong();
+    TimerWheel wheel = new TimerWheel(1_000, 8, 4, now::get);
+    DiscountEngine de = new DiscountEngine();
+    TimerWheel.Timeout reload = new PromotionRuleLoader(file, de::setRules).schedule(wheel, 60_000);
+    Drink d = new Drink("D", "D", 30, 5, false);
+
+    now.set(60_000);
+    wheel.advance();
+    assertEquals(29, de.applyPromotion(d, 0, false));
+    PromotionRules first = de.getRules();
+
+    Files.writeString(file, "when true then sub 4");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+    now.set(120_000);
+    wheel.advance();
+    assertEquals(26, de.applyPromotion(d, 0, false));
+    // 新舊兩組規則各自編譯成獨立的類別，互不影響
+    assertEquals(29, first.apply(de, d, 0, false, 0));
+    assertTrue(reload.cancel());
+  }
+}
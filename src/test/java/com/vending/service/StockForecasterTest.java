@@ -0,0 +1,71 @@
+package com.vending.service;
+
+import com.vending.core.VendingMachine;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockForecasterTest {
+  private static final long MIN = 60_000L;
+
+  @Test
+  void testSmoothedRateAndTimeToEmpty() {
+    StockForecaster f = new StockForecaster(0.5);
+    f.recordSale("M1", "A1", 9, 0);
+    assertEquals(Long.MAX_VALUE, f.millisToEmpty("M1", "A1", 0));
+
+    f.recordSale("M1", "A1", 8, 10 * MIN);
+    // 間隔 10 分鐘，剩 8 瓶 -> 80 分鐘後售完
+    assertEquals(80 * MIN, f.millisToEmpty("M1", "A1", 10 * MIN));
+    assertEquals(6.0, f.predict("M1", "A1").getSalesPerHour(), 1e-9);
+
+    f.recordSale("M1", "A1", 7, 30 * MIN);
+    // 平滑間隔 = 0.5 * 20 + 0.5 * 10 = 15 分鐘
+    assertEquals(30 * MIN + 7 * 15 * MIN, f.predict("M1", "A1").getEmptyAt());
+
+    f.recordRestock("M1", "A1", 10);
+    assertEquals(30 * MIN + 10 * 15 * MIN, f.predict("M1", "A1").getEmptyAt());
+    assertNull(f.predict("M1", "ZZ"));
+    assertEquals(Long.MAX_VALUE, f.millisToEmpty("M1", "ZZ", 0));
+    assertThrows(IllegalArgumentException.class, () -> new StockForecaster(0));
+  }
+
+  @Test
+  void testSoonestStockOutsAcrossHost() {
+    StockForecaster f = new StockForecaster();
+    f.recordSale("M1", "A1", 5, 0);
+    f.recordSale("M1", "A1", 4, MIN);       // 4 分鐘後
+    f.recordSale("M2", "B1", 10, 0);
+    f.recordSale("M2", "B1", 9, 2 * MIN);   // 18 分鐘後
+    f.recordSale("M3", "C1", 3, 0);         // 資料不足
+    f.recordSale("M4", "D1", 0, 3 * MIN);   // 已售完
+
+    List<StockForecaster.Prediction> top = f.soonestStockOuts(10);
+    assertEquals(3, top.size());
+    assertEquals("M4", top.get(0).getMachineId());
+    assertEquals("M1", top.get(1).getMachineId());
+    assertEquals("M2", top.get(2).getMachineId());
+    assertEquals(1, f.soonestStockOuts(1).size());
+
+    // 加速售出會讓預測提前，並在排序中更新
+    long before = f.predict("M2", "B1").getEmptyAt();
+    f.recordSale("M2", "B1", 8, 2 * MIN + 1000);
+    assertTrue(f.predict("M2", "B1").getEmptyAt() < before);
+    assertEquals(3, f.soonestStockOuts(10).size());
+  }
+
+  @Test
+  void testMachineFeedsForecaster() {
+    VendingMachine vm = new VendingMachine("VM-F");
+    StockForecaster f = new StockForecaster();
+    vm.setStockForecaster(f);
+    vm.insertCoin(50);
+    vm.selectDrink("A2");
+    assertEquals(vm.getInventory().get("A2").getStock(), f.predict("VM-F", "A2").getStock());
+
+    vm.enterMaintenance("admin123");
+    vm.selectDrink("A2");
+    assertEquals(10, f.predict("VM-F", "A2").getStock());
+    vm.getMaintenanceState().maintenance("any");
+  }
+}
@@ -0,0 +1,182 @@
+package com.vending.service;
+
+import com.vending.core.VendingMachine;
+import com.vending.model.Drink;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+  @Test
+  void testFiresOnTimeAcrossLevelsAndNeverEarly() {
+    AtomicLong now = new AtomicLong(1_000);
+    // 每層 4 格、3 層：第 0 層 4 tick、第 1 層 16 tick、第 2 層 64 tick
+    TimerWheel wheel = new TimerWheel(10, 2, 3, now::get);
+    long[] delays = {0, 5, 10, 35, 160, 170, 400, 639, 2_000};
+    List<Long> firedAt = new ArrayList<>();
+    long[] expected = new long[delays.length];
+    for (int i = 0; i < delays.length; i++) {
+      expected[i] = now.get() + delays[i];
+      int idx = i;
+      wheel.schedule(() -> firedAt.add((long) idx), delays[i]);
+    }
+    long[] actual = new long[delays.length];
+    for (long t = now.get(); t <= 4_000; t += 10) {
+      now.set(t);
+      int before = firedAt.size();
+      wheel.advance();
+      for (int k = before; k < firedAt.size(); k++) actual[firedAt.get(k).intValue()] = t;
+    }
+    assertEquals(delays.length, firedAt.size());
+    for (int i = 0; i < delays.length; i++) {
+      assertTrue(actual[i] >= expected[i], "第 " + i + " 個提早執行");
+      assertTrue(actual[i] < expected[i] + 10, "第 " + i + " 個延遲超過一個 tick: " + actual[i]);
+    }
+    assertEquals(0, wheel.pendingCount());
+  }
+
+  @Test
+  void testCancelAndPeriodic() {
+    AtomicLong now = new AtomicLong();
+    TimerWheel wheel = new TimerWheel(10, 8, 4, now::get);
+    AtomicInteger hits = new AtomicInteger();
+    TimerWheel.Timeout cancelled = wheel.schedule(hits::incrementAndGet, 50);
+    TimerWheel.Timeout kept = wheel.schedule(hits::incrementAndGet, 50);
+    AtomicInteger audits = new AtomicInteger();
+    TimerWheel.Timeout audit = wheel.scheduleAtFixedRate(audits::incrementAndGet, 100);
+
+    assertTrue(cancelled.cancel());
+    assertFalse(cancelled.cancel());
+    now.set(60);
+    assertEquals(1, wheel.advance());
+    assertEquals(1, hits.get());
+    assertTrue(kept.isExpired());
+    assertFalse(kept.cancel());
+
+    now.set(350);
+    wheel.advance();
+    assertEquals(3, audits.get());
+    assertTrue(audit.cancel());
+    now.set(1_000);
+    wheel.advance();
+    assertEquals(3, audits.get());
+    assertEquals(0, wheel.pendingCount());
+  }
+
+  @Test
+  void testTasksRunOutsideWheelMonitor() throws Exception {
+    AtomicLong now = new AtomicLong();
+    TimerWheel wheel = new TimerWheel(10, 8, 4, now::get);
+    AtomicInteger inner = new AtomicInteger();
+    wheel.schedule(() -> {
+      // 工作執行期間另一個執行緒推進時間輪，不應被監視器擋住
+      Thread other = new Thread(() -> inner.set(wheel.advanceTo(0) + 1));
+      other.start();
+      try {
+        other.join(5_000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, 10);
+    now.set(20);
+    assertEquals(1, wheel.advance());
+    assertEquals(1, inner.get());
+  }
+
+  @Test
+  void testManyTimersScheduledFromSeveralThreads() throws Exception {
+    AtomicLong now = new AtomicLong();
+    TimerWheel wheel = new TimerWheel(1, 8, 4, now::get);
+    AtomicInteger fired = new AtomicInteger();
+    Thread[] producers = new Thread[4];
+    for (int p = 0; p < producers.length; p++) {
+      producers[p] = new Thread(() -> {
+        for (int i = 0; i < 50_000; i++) {
+          TimerWheel.Timeout t = wheel.schedule(fired::incrementAndGet, i % 5_000);
+          if (i % 2 == 1) t.cancel();
+        }
+      });
+      producers[p].start();
+    }
+    for (Thread t : producers) t.join();
+    assertEquals(100_000, wheel.pendingCount());
+    now.set(5_000);
+    wheel.advance();
+    assertEquals(100_000, fired.get());
+    assertEquals(0, wheel.pendingCount());
+  }
+
+  @Test
+  void testSessionTimeoutRefundsAbandonedBalance() {
+    AtomicLong now = new AtomicLong();
+    TimerWheel wheel = new TimerWheel(100, 8, 4, now::get);
+    VendingMachine vm = new VendingMachine();
+    vm.setSessionTimeout(wheel, 30_000);
+    vm.insertCoin(10);
+    now.set(20_000);
+    wheel.advance();
+    // 再次操作會重新計時
+    vm.insertCoin(10);
+    now.set(40_000);
+    wheel.advance();
+    assertEquals(20, vm.getBalance());
+    now.set(50_000);
+    wheel.advance();
+    assertEquals(0, vm.getBalance());
+    assertSame(vm.getIdleState(), vm.getCurrentState());
+
+    // 完成交易後沒有餘額，計時器不會動作
+    vm.insertCoin(50);
+    vm.selectDrink("A1");
+    now.set(200_000);
+    assertEquals(0, wheel.advance());
+  }
+
+  @Test
+  void testSessionTimeoutClearsMemberWithoutCoins() {
+    AtomicLong now = new AtomicLong();
+    TimerWheel wheel = new TimerWheel(100, 8, 4, now::get);
+    VendingMachine vm = new VendingMachine();
+    vm.setSessionTimeout(wheel, 30_000);
+    // 刷卡後沒有投幣就離開
+    vm.identifyMember(42L);
+    now.set(20_000);
+    wheel.advance();
+    assertEquals(42L, vm.getCurrentMemberId());
+    now.set(40_000);
+    wheel.advance();
+    assertEquals(0L, vm.getCurrentMemberId());
+    assertSame(vm.getIdleState(), vm.getCurrentState());
+  }
+
+  @Test
+  void testFlashSaleSwapsRulesForWindow() {
+    AtomicLong now = new AtomicLong();
+    TimerWheel wheel = new TimerWheel(1_000, 8, 4, now::get);
+    DiscountEngine de = new DiscountEngine();
+    Drink d = new Drink("A1", "Water", 30, 5, false);
+    int regular = de.applyPromotion(d, 0, false);
+    de.scheduleFlashSale(wheel, PromotionRules.compile("when true then mul 0.5"), 60_000, 3_600_000);
+
+    now.set(59_000);
+    wheel.advance();
+    assertEquals(regular, de.applyPromotion(d, 0, false));
+    now.set(60_000);
+    wheel.advance();
+    assertEquals(15, de.applyPromotion(d, 0, false));
+    now.set(3_660_000);
+    wheel.advance();
+    assertNull(de.getRules());
+    assertEquals(regular, de.applyPromotion(d, 0, false));
+
+    List<TimerWheel.Timeout> sale = de.scheduleFlashSale(wheel, PromotionRules.compile("when true then sub 5"), 1_000, 1_000);
+    assertTrue(sale.get(0).cancel());
+    now.set(4_000_000);
+    wheel.advance();
+    assertNull(de.getRules());
+  }
+}
@@ -0,0 +1,195 @@
+package com.vending.telemetry;
+
+import com.vending.core.VendingMachine;
+import com.vending.state.MaintenanceState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OfflineOutboxTest {
+
+  private static byte[] bytes(String s) { return s.getBytes(StandardCharsets.UTF_8); }
+
+  @Test
+  void testBatchedFlushWhenOnline(@TempDir Path dir) throws Exception {
+    VendingMachine vm = new VendingMachine();
+    MaintenanceState ms = (MaintenanceState) vm.getMaintenanceState();
+    Field wifi = MaintenanceState.class.getDeclaredField("wifi");
+    Field sim = MaintenanceState.class.getDeclaredField("sim4g");
+    wifi.setAccessible(true); sim.setAccessible(true);
+    wifi.set(ms, false); sim.set(ms, false);
+
+    LocalOutboxSink sink = new LocalOutboxSink();
+    try (OfflineOutbox outbox = new OfflineOutbox(dir, 100, false)) {
+      for (int i = 0; i < 250; i++) outbox.append(bytes("sale-" + i));
+      assertEquals(0, outbox.flushIfOnline(ms::isOnline, sink));
+      assertEquals(0, sink.getRequests());
+
+      sim.set(ms, true);
+      assertEquals(250, outbox.flushIfOnline(ms::isOnline, sink));
+      // 250 筆只需 3 次請求
+      assertEquals(3, sink.getRequests());
+      assertEquals("sale-249", new String(sink.getReceived().get(249), StandardCharsets.UTF_8));
+      assertEquals(0, outbox.pendingCount());
+      assertEquals(250, outbox.getAckedSequence());
+    }
+  }
+
+  @Test
+  void testFailedDeliveryIsRetriedAndSequencesSurviveRestart(@TempDir Path dir) throws Exception {
+    LocalOutboxSink sink = new LocalOutboxSink();
+    try (OfflineOutbox outbox = new OfflineOutbox(dir, 2, true)) {
+      assertEquals(1, outbox.append(bytes("a")));
+      outbox.append(bytes("b"));
+      outbox.append(bytes("c"));
+      sink.setAvailable(false);
+      assertEquals(0, outbox.flush(sink));
+      assertEquals(3, outbox.pendingCount());
+    }
+    try (OfflineOutbox reopened = new OfflineOutbox(dir, 2, true)) {
+      assertEquals(4, reopened.append(bytes("d")));
+      sink.setAvailable(true);
+      assertEquals(4, reopened.flush(sink));
+      assertEquals(4, sink.getReceived().size());
+    }
+    try (OfflineOutbox afterCompaction = new OfflineOutbox(dir, 2, true)) {
+      assertEquals(5, afterCompaction.append(bytes("e")));
+      assertEquals(1, afterCompaction.pendingCount());
+    }
+  }
+
+  @Test
+  void testTornTailIsDiscarded(@TempDir Path dir) throws IOException {
+    try (OfflineOutbox outbox = new OfflineOutbox(dir, 10, false)) {
+      outbox.append(bytes("ok"));
+    }
+    try (FileChannel ch = FileChannel.open(dir.resolve("outbox.log"), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      ch.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 50, 1, 2}));
+    }
+    LocalOutboxSink sink = new LocalOutboxSink();
+    try (OfflineOutbox outbox = new OfflineOutbox(dir, 10, false)) {
+      assertEquals(1, outbox.pendingCount());
+      assertEquals(2, outbox.append(bytes("next")));
+      assertEquals(2, outbox.flush(sink));
+    }
+    assertThrows(IllegalArgumentException.class, () -> new OfflineOutbox(dir, 0, false));
+  }
+
+  @Test
+  void testMidFileCorruptionIsNotTruncated(@TempDir Path dir) throws IOException {
+    try (OfflineOutbox outbox = new OfflineOutbox(dir, 10, false)) {
+      outbox.append(bytes("first"));
+      outbox.append(bytes("second"));
+    }
+    Path log = dir.resolve("outbox.log");
+    long size;
+    try (FileChannel ch = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      size = ch.size();
+      // 改掉第一筆的內容，校驗失敗但後面還有完整的第二筆
+      ch.write(ByteBuffer.wrap(bytes("F")), 12);
+    }
+    assertThrows(IOException.class, () -> new OfflineOutbox(dir, 10, false));
+    try (FileChannel ch = FileChannel.open(log, StandardOpenOption.READ)) {
+      assertEquals(size, ch.size());
+    }
+  }
+
+  @Test
+  void testTelemetryFramesFlowIntoOutbox(@TempDir Path dir) throws Exception {
+    LocalOutboxSink sink = new LocalOutboxSink();
+    try (OfflineOutbox outbox = new OfflineOutbox(dir, 10, false)) {
+      TelemetryBatcher batcher = new TelemetryBatcher("VM-1", 2, outbox.asFrameSink());
+      batcher.recordSale("A1", 25, 30, 5, 1L);
+      batcher.recordSale("A2", 20, 20, 0, 2L);
+      outbox.flush(sink);
+    }
+    TelemetryCodec.Frame frame = TelemetryCodec.decodeFrame(sink.getReceived().get(0));
+    assertEquals(2, frame.getRecords().size());
+  }
+
+  @Test
+  void testSalesQueueOfflineAndFlushOnReconnect(@TempDir Path dir) throws Exception {
+    VendingMachine vm = new VendingMachine();
+    MaintenanceState ms = vm.getMaintenanceState();
+    LocalOutboxSink sink = new LocalOutboxSink();
+    try (OfflineOutbox outbox = new OfflineOutbox(dir, 10, false)) {
+      vm.attachOutbox(outbox, sink, 100);
+      ms.setConnectivity(false, false);
+      vm.insertCoin(50);
+      vm.selectDrink("A1");
+      // 未滿一框，離線時什麼都沒送出
+      assertEquals(0, sink.getRequests());
+
+      ms.setConnectivity(false, true);
+      awaitTrue(() -> sink.getRequests() == 1);
+      awaitTrue(() -> pending(outbox) == 0);
+      TelemetryCodec.Frame frame = TelemetryCodec.decodeFrame(sink.getReceived().get(0));
+      assertEquals("VM-0001", frame.getMachineId());
+      assertFalse(frame.getRecords().isEmpty());
+
+      // 已連線時再切換網路不會重複補送
+      ms.setConnectivity(true, true);
+      Thread.sleep(50);
+      assertEquals(1, sink.getRequests());
+      vm.detachOutbox();
+    }
+  }
+
+  @Test
+  void testSlowUplinkDoesNotBlockSales(@TempDir Path dir) throws Exception {
+    VendingMachine vm = new VendingMachine();
+    CountDownLatch uplinkUp = new CountDownLatch(1);
+    LocalOutboxSink received = new LocalOutboxSink();
+    // 第一次上傳卡住直到網路恢復，之後每次上傳都會重試
+    OutboxSink slow = batch -> {
+      try {
+        uplinkUp.await();
+      } catch (InterruptedException e) {
+        return false;
+      }
+      return received.deliver(batch);
+    };
+    try (OfflineOutbox outbox = new OfflineOutbox(dir, 10, false)) {
+      vm.attachOutbox(outbox, slow, 1, Duration.ofMillis(20));
+      for (int i = 0; i < 3; i++) {
+        vm.insertCoin(50);
+        vm.selectDrink("A2");
+      }
+      // 上傳卡住時交易照常完成，紀錄留在 outbox
+      assertEquals(2, vm.getInventory().get("A2").getStock());
+      assertTrue(outbox.pendingCount() > 0);
+
+      uplinkUp.countDown();
+      awaitTrue(() -> pending(outbox) == 0);
+      assertFalse(received.getReceived().isEmpty());
+      vm.detachOutbox();
+    }
+  }
+
+  private static long pending(OfflineOutbox outbox) {
+    try {
+      return outbox.pendingCount();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "逾時");
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.vending.telemetry;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorTimeSeriesTest {
+  private static final long MIN = 60_000L;
+
+  @Test
+  void testWindowAndRingOverwrite() {
+    SensorTimeSeries ts = SensorTimeSeries.allocate(8, 4, 2);
+    for (int i = 0; i < 20; i++) ts.append(i * 1000L, 100 + i, i, 90);
+
+    // 環只保留最後 8 筆 (i = 12..19)
+    WindowStats all = ts.window(SensorTimeSeries.VOLTAGE, 1_000_000L, 19_000L);
+    assertEquals(8, all.getCount());
+    assertEquals(112, all.getMin());
+    assertEquals(119, all.getMax());
+
+    WindowStats recent = ts.window(SensorTimeSeries.TEMPERATURE, 2_000L, 19_000L);
+    assertEquals(3, recent.getCount());
+    assertEquals(18.0, recent.getMean());
+    assertTrue(ts.window(SensorTimeSeries.CLEANLINESS, 1_000L, 100_000L).isEmpty());
+    assertEquals(20, ts.getSampleCount());
+    assertThrows(IllegalArgumentException.class, () -> ts.window(3, 1, 1));
+  }
+
+  @Test
+  void testMinuteAndHourRollups() {
+    SensorTimeSeries ts = SensorTimeSeries.allocate(4, 3, 2);
+    // 每分鐘 6 筆，共 5 分鐘；原始環只有 4 筆，但彙總仍可回答
+    for (int m = 0; m < 5; m++) {
+      for (int s = 0; s < 6; s++) ts.append(m * MIN + s * 10_000L, 110, m * 10 + s, 98);
+    }
+    WindowStats minute3 = ts.rollup(SensorTimeSeries.Resolution.MINUTE, SensorTimeSeries.TEMPERATURE, 3 * MIN, 4 * MIN);
+    assertEquals(6, minute3.getCount());
+    assertEquals(30, minute3.getMin());
+    assertEquals(35, minute3.getMax());
+    assertEquals(32.5, minute3.getMean());
+
+    // 分鐘環只保留最近 3 分鐘
+    WindowStats minutes = ts.rollup(SensorTimeSeries.Resolution.MINUTE, SensorTimeSeries.TEMPERATURE, 0, 5 * MIN);
+    assertEquals(18, minutes.getCount());
+    assertEquals(20, minutes.getMin());
+
+    WindowStats hour = ts.rollup(SensorTimeSeries.Resolution.HOUR, SensorTimeSeries.VOLTAGE, 0, 60 * MIN);
+    assertEquals(30, hour.getCount());
+    assertEquals(110.0, hour.getMean());
+  }
+
+  @Test
+  void testStoreSlicesAreIndependent() {
+    SensorTimeSeriesStore store = new SensorTimeSeriesStore(3, 16, 4, 2);
+    store.get(0).append(1L, 100, 1, 1);
+    store.get(2).append(1L, 120, 2, 2);
+    assertEquals(100, store.get(0).window(SensorTimeSeries.VOLTAGE, 10, 1).getMax());
+    assertTrue(store.get(1).window(SensorTimeSeries.VOLTAGE, 10, 1).isEmpty());
+    assertEquals(120, store.get(2).window(SensorTimeSeries.VOLTAGE, 10, 1).getMax());
+    assertEquals(3, store.size());
+  }
+
+  @Test
+  void testLazyStoreCarvesSlicesOnDemandAndKeepsAWeekOfHours() {
+    SensorTimeSeriesStore store = SensorTimeSeriesStore.lazy(2, 4, 2, 168);
+    assertEquals(0, store.size());
+    SensorTimeSeries a = store.acquire();
+    SensorTimeSeries b = store.acquire();
+    // 第三片落在新配置的 slab
+    SensorTimeSeries c = store.acquire();
+    assertEquals(3, store.size());
+    a.append(1L, 100, 1, 1);
+    c.append(1L, 120, 2, 2);
+    assertTrue(b.window(SensorTimeSeries.VOLTAGE, 10, 1).isEmpty());
+    assertEquals(120, c.window(SensorTimeSeries.VOLTAGE, 10, 1).getMax());
+
+    long hour = SensorTimeSeries.Resolution.HOUR.getMillis();
+    for (int h = 0; h < 168; h++) b.append(h * hour, 100 + h % 10, 4, 90);
+    WindowStats week = b.rollup(SensorTimeSeries.Resolution.HOUR, SensorTimeSeries.VOLTAGE, 0, 168 * hour);
+    assertEquals(168, week.getCount());
+    assertEquals(100, week.getMin());
+  }
+
+  @Test
+  void testReleasedSliceIsReusedEmpty() {
+    SensorTimeSeriesStore store = SensorTimeSeriesStore.lazy(1, 4, 2, 2);
+    SensorTimeSeries a = store.acquire();
+    a.append(1L, 100, 1, 1);
+    store.release(a);
+    assertEquals(0, store.size());
+    SensorTimeSeries b = store.acquire();
+    assertEquals(0, b.getSampleCount());
+    assertTrue(b.window(SensorTimeSeries.VOLTAGE, 10, 1).isEmpty());
+    assertThrows(IllegalArgumentException.class, () -> store.release(SensorTimeSeries.allocate(8, 2, 2)));
+  }
+}
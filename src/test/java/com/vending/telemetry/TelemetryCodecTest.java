@@ -0,0 +1,93 @@
+package com.vending.telemetry;
+
+import com.vending.core.VendingMachine;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryCodecTest {
+
+  @Test
+  void testRoundTrip() {
+    List<TelemetryRecord> records = new ArrayList<>();
+    long t = 1_700_000_000_000L;
+    for (int i = 0; i < 500; i++) {
+      records.add(TelemetryRecord.sensor(t + i * 60_000L, 110 + (i % 3), 4 - (i % 2), 98, true, i % 7 != 0));
+      records.add(TelemetryRecord.sale(t + i * 60_000L + 5, i % 2 == 0 ? "A1" : "可樂B2", 25, 30, 5));
+      records.add(TelemetryRecord.coinReserve(t + i * 60_000L + 6, 5, 20 - (i % 5)));
+    }
+    byte[] frame = TelemetryCodec.encodeFrame("VM-42", records);
+    TelemetryCodec.Frame decoded = TelemetryCodec.decodeFrame(frame);
+
+    assertEquals("VM-42", decoded.getMachineId());
+    assertEquals(records, decoded.getRecords());
+    // 1500 筆紀錄壓縮後平均每筆應遠小於 4 bytes
+    assertTrue(frame.length < records.size() * 4, "frame bytes = " + frame.length);
+  }
+
+  @Test
+  void testTinyFrameStaysUncompressed() {
+    List<TelemetryRecord> one = List.of(TelemetryRecord.coinReserve(-3, 50, -1));
+    assertEquals(one, TelemetryCodec.decodeFrame(TelemetryCodec.encodeFrame("", one)).getRecords());
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeFrame(new byte[]{1, 2, 3, 4}));
+
+    // 竄改紀錄類型 (負數與超出範圍) 與字典索引，都應以 IllegalArgumentException 拒絕
+    byte[] frame = TelemetryCodec.encodeFrame("", one);
+    int typeAt = frame.length - 4;
+    assertEquals(TelemetryRecord.Type.COIN_RESERVE.ordinal(), frame[typeAt]);
+    for (byte bad : new byte[]{(byte) 0x80, 3, 127}) {
+      byte[] tampered = frame.clone();
+      tampered[typeAt] = bad;
+      assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeFrame(tampered));
+    }
+    byte[] sale = TelemetryCodec.encodeFrame("", List.of(TelemetryRecord.sale(0, "A", 1, 1, 0)));
+    byte[] badIndex = sale.clone();
+    // 第一個商品應以 0 + 字串寫入，改成引用不存在的字典項目
+    badIndex[sale.length - 6] = 5;
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeFrame(badIndex));
+  }
+
+  @Test
+  void testMalformedHeaderIsRejected() {
+    byte[] frame = TelemetryCodec.encodeFrame("VM-1", List.of(TelemetryRecord.sale(0, "A", 1, 1, 0)));
+    // 任意位置截斷都以編碼器自己的例外回報
+    for (int len = 0; len < frame.length; len++) {
+      byte[] cut = Arrays.copyOf(frame, len);
+      assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeFrame(cut));
+    }
+    // 機台編號長度、內容長度與筆數超出範圍時不配置緩衝區
+    byte[] hugeId = {'V', 'T', 1, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeFrame(hugeId));
+    byte[] hugeRaw = {'V', 'T', 1, 1, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeFrame(hugeRaw));
+    byte[] hugeCount = {'V', 'T', 1, 0, 0, (byte) 0xFF, (byte) 0xFF, 0x7F, 2, 0, 0};
+    assertThrows(IllegalArgumentException.class, () -> TelemetryCodec.decodeFrame(hugeCount));
+  }
+
+  @Test
+  void testBatcherFromMachine() {
+    List<byte[]> frames = new ArrayList<>();
+    VendingMachine vm = new VendingMachine("VM-7");
+    TelemetryBatcher batcher = new TelemetryBatcher(vm.getMachineId(), 6, frames::add);
+    vm.setTelemetry(batcher);
+
+    vm.insertCoin(50);
+    vm.selectDrink("A1");
+    // 一筆銷售 + 四種面額的首次庫存
+    assertEquals(5, batcher.pendingCount());
+    // 感測器回報的讀值經由維護狀態進入同一批
+    vm.getMaintenanceState().updateSensors(10L, 112, 4, 98);
+    assertEquals(1, frames.size());
+    assertEquals(0, batcher.pendingCount());
+
+    List<TelemetryRecord> decoded = TelemetryCodec.decodeFrame(frames.get(0)).getRecords();
+    TelemetryRecord sale = decoded.get(0);
+    assertEquals("A1", sale.getDrinkId());
+    assertEquals(50, sale.getPaid());
+    assertEquals(sale.getPaid() - sale.getPrice(), sale.getChange());
+    assertEquals(TelemetryRecord.Type.SENSOR, decoded.get(5).getType());
+    assertEquals(112, decoded.get(5).getVoltage());
+  }
+}